@@ -20,6 +20,9 @@ public class AccountView extends BorderPane {
     private Node buildTopBar() {
         Label title = new Label("BugBoard26");
         title.getStyleClass().add("h1");
+        title.setOnMouseClicked(e -> {
+            if (e.getClickCount() == 3) AppNavigator.goDiagnostics();
+        });
 
         Label subtitle = new Label("Account");
         subtitle.getStyleClass().add("muted");
@@ -1,12 +1,13 @@
 package application;
 
+import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -26,9 +27,8 @@ public class AdminApi {
         public ConflictException(String body) { super(body == null || body.isBlank() ? "Email già esistente (409)" : body); }
     }
 
-    private static final HttpClient CLIENT = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(5))
-            .build();
+    private static final HttpTransport.ErrorMapping ERRORS = new HttpTransport.ErrorMapping(
+            UnauthorizedException::new, ForbiddenException::new, ConflictException::new);
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
@@ -45,6 +45,22 @@ public class AdminApi {
      * Body: {email, psw, role}
      */
     public static void registerUser(String email, String psw, String role) throws Exception {
+        HttpTransport.send(
+                registerUserRequest(email, psw, role),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8),
+                AdminApi::readRegistered
+        );
+    }
+
+    public static CompletableFuture<Void> registerUserAsync(String email, String psw, String role) {
+        return HttpTransport.sendAsync(
+                () -> registerUserRequest(email, psw, role),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8),
+                AdminApi::readRegistered
+        );
+    }
+
+    private static HttpRequest registerUserRequest(String email, String psw, String role) throws IOException {
         String url = ApiConfig.BASE_URL + "/bugboard/admin/register";
 
         Map<String, Object> payload = Map.of(
@@ -64,25 +80,11 @@ public class AdminApi {
 
         addAuth(b);
 
-        HttpRequest req = b.build();
-        HttpResponse<String> resp = CLIENT.send(
-                req,
-                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)
-        );
-
-        if (resp.statusCode() == 200 || resp.statusCode() == 201) {
-            return;
-        }
-        if (resp.statusCode() == 401) {
-            throw new UnauthorizedException(resp.statusCode(), resp.body());
-        }
-        if (resp.statusCode() == 403) {
-            throw new ForbiddenException(resp.body());
-        }
-        if (resp.statusCode() == 409) {
-            throw new ConflictException(resp.body());
-        }
+        return b.build();
+    }
 
-        throw new RuntimeException("HTTP " + resp.statusCode() + " - " + resp.body());
+    private static Void readRegistered(HttpResponse<String> resp) {
+        HttpTransport.checkStatus(resp.statusCode(), resp.body(), ERRORS, 200, 201);
+        return null;
     }
 }
@@ -182,9 +182,7 @@ public class AdminCreateUserView extends BorderPane {
             }
         });
 
-        Thread t = new Thread(task);
-        t.setDaemon(true);
-        t.start();
+        ViewScope.of(this).run(task);
     }
 
     private void setLoading(boolean loading) {
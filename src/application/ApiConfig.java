@@ -1,6 +1,12 @@
 package application;
 
+import java.nio.file.Path;
+
 public final class ApiConfig {
     private ApiConfig() {}
-    public static final String BASE_URL = "http://154.46.187.160:1966";
+    /** Backend; -Dbugboard.api.url=... per puntare a un altro server (es. quello finto del benchmark UI). */
+    public static final String BASE_URL = System.getProperty("bugboard.api.url", "http://154.46.187.160:1966");
+
+    /** Dati locali del client (cache, store). */
+    public static final Path DATA_DIR = Path.of(System.getProperty("user.home"), ".bugboard26");
 }
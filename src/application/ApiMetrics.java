@@ -0,0 +1,197 @@
+package application;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metriche di ogni scambio HTTP, per endpoint ({@link Hedging#endpoint}: gli id nel path diventano {id}):
+ * istogramma delle latenze, byte inviati e ricevuti, conteggi per status, errori di rete e richieste in corso.
+ * Senza lock sul percorso caldo: bucket in AtomicLongArray, contatori LongAdder, endpoint in una
+ * ConcurrentHashMap letta senza bloccare. La latenza arriva fino alla risposta
+ * (agli header per i body in streaming); ogni tentativo (retry, hedge) conta come uno scambio.
+ */
+public final class ApiMetrics {
+
+    /** Limiti superiori dei bucket in ms; l'ultimo bucket raccoglie tutto il resto. */
+    private static final long[] BOUNDS_MILLIS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000, 10_000, 20_000
+    };
+
+    private static final ApiMetrics SHARED = new ApiMetrics();
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private ApiMetrics() {}
+
+    public static ApiMetrics shared() {
+        return SHARED;
+    }
+
+    /** Richieste in corso su tutti gli endpoint. */
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /** Uno scambio in corso; va chiuso una sola volta con end, fail o abandon. */
+    public final class Call {
+        private final Endpoint e;
+        private final long start = System.nanoTime();
+
+        private Call(Endpoint e) {
+            this.e = e;
+        }
+
+        public void end(int status) {
+            e.record(System.nanoTime() - start);
+            e.status(status).increment();
+            done();
+        }
+
+        public void fail() {
+            e.record(System.nanoTime() - start);
+            e.errors.increment();
+            done();
+        }
+
+        /** Avvolge l'handler contando i byte del body man mano che arrivano (anche in streaming). */
+        public <T> HttpResponse.BodyHandler<T> counting(HttpResponse.BodyHandler<T> handler) {
+            return info -> new CountingSubscriber<>(handler.apply(info), e.bytesIn);
+        }
+
+        /** Cancellato o interrotto prima di una risposta: conta solo come cancellato. */
+        public void abandon() {
+            e.cancelled.increment();
+            done();
+        }
+
+        private void done() {
+            e.inFlight.decrementAndGet();
+            inFlight.decrementAndGet();
+        }
+    }
+
+    Call start(HttpRequest req) {
+        Endpoint e = endpoint(Hedging.endpoint(req));
+        e.inFlight.incrementAndGet();
+        inFlight.incrementAndGet();
+        long out = req.bodyPublisher().map(HttpRequest.BodyPublisher::contentLength).orElse(0L);
+        if (out > 0) e.bytesOut.add(out);
+        return new Call(e);
+    }
+
+    /** Istantanea per la vista di diagnostica e l'export JSON (endpoint in ordine alfabetico). */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> out = new TreeMap<>();
+        endpoints.forEach((name, e) -> out.put(name, e.snapshot()));
+        return out;
+    }
+
+    private Endpoint endpoint(String name) {
+        Endpoint e = endpoints.get(name);
+        return e != null ? e : endpoints.computeIfAbsent(name, k -> new Endpoint());
+    }
+
+    private static final class Endpoint {
+        final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MILLIS.length + 1);
+        final LongAdder totalNanos = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder cancelled = new LongAdder();
+        final LongAdder bytesIn = new LongAdder();
+        final LongAdder bytesOut = new LongAdder();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        void record(long nanos) {
+            long ms = nanos / 1_000_000;
+            int i = 0;
+            while (i < BOUNDS_MILLIS.length && ms > BOUNDS_MILLIS[i]) i++;
+            buckets.incrementAndGet(i);
+            totalNanos.add(nanos);
+        }
+
+        LongAdder status(int code) {
+            LongAdder a = statuses.get(code);
+            return a != null ? a : statuses.computeIfAbsent(code, k -> new LongAdder());
+        }
+
+        Map<String, Object> snapshot() {
+            long[] b = new long[buckets.length()];
+            long n = 0;
+            for (int i = 0; i < b.length; i++) {
+                b[i] = buckets.get(i);
+                n += b[i];
+            }
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("count", n);
+            m.put("inFlight", inFlight.get());
+            m.put("errors", errors.sum());
+            m.put("cancelled", cancelled.sum());
+            m.put("meanMs", n == 0 ? 0 : totalNanos.sum() / n / 1_000_000);
+            m.put("p50Ms", percentile(b, n, 0.50));
+            m.put("p95Ms", percentile(b, n, 0.95));
+            m.put("p99Ms", percentile(b, n, 0.99));
+            m.put("bytesIn", bytesIn.sum());
+            m.put("bytesOut", bytesOut.sum());
+            Map<String, Long> codes = new TreeMap<>();
+            statuses.forEach((k, v) -> codes.put(String.valueOf(k), v.sum()));
+            m.put("status", codes);
+            Map<String, Long> hist = new LinkedHashMap<>();
+            for (int i = 0; i < b.length; i++) {
+                if (b[i] == 0) continue;
+                hist.put(i < BOUNDS_MILLIS.length ? "<=" + BOUNDS_MILLIS[i] + "ms" : ">" + BOUNDS_MILLIS[BOUNDS_MILLIS.length - 1] + "ms", b[i]);
+            }
+            m.put("histogram", hist);
+            return m;
+        }
+
+        /** Limite superiore del bucket che contiene il percentile (-1 senza campioni). */
+        private static long percentile(long[] b, long n, double p) {
+            if (n == 0) return -1;
+            long rank = (long) Math.ceil(p * n);
+            long seen = 0;
+            for (int i = 0; i < b.length; i++) {
+                seen += b[i];
+                // oltre l'ultimo limite si riporta l'ultimo limite (l'istogramma mostra ">")
+                if (seen >= rank) return BOUNDS_MILLIS[Math.min(i, BOUNDS_MILLIS.length - 1)];
+            }
+            return BOUNDS_MILLIS[BOUNDS_MILLIS.length - 1];
+        }
+    }
+
+    /** Passa i buffer così come sono, sommando solo i byte. */
+    private static final class CountingSubscriber<T> implements HttpResponse.BodySubscriber<T> {
+        private final HttpResponse.BodySubscriber<T> downstream;
+        private final LongAdder bytes;
+
+        CountingSubscriber(HttpResponse.BodySubscriber<T> downstream, LongAdder bytes) {
+            this.downstream = downstream;
+            this.bytes = bytes;
+        }
+
+        @Override public CompletionStage<T> getBody() { return downstream.getBody(); }
+        @Override public void onSubscribe(Flow.Subscription s) { downstream.onSubscribe(s); }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            long n = 0;
+            for (ByteBuffer b : items) n += b.remaining();
+            bytes.add(n);
+            downstream.onNext(items);
+        }
+
+        @Override public void onError(Throwable t) { downstream.onError(t); }
+        @Override public void onComplete() { downstream.onComplete(); }
+    }
+}
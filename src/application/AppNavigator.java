@@ -5,6 +5,8 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.util.Duration;
 
+import java.util.function.Supplier;
+
 public final class AppNavigator {
     private static Scene scene;
 
@@ -15,46 +17,58 @@ public final class AppNavigator {
     }
 
     public static void goLogin() {
-        setRoot(new LoginView());
+        setRoot("login", LoginView::new);
     }
 
     public static void goDashboard() {
-        setRoot(new DashboardView());
+        setRoot("dashboard", DashboardView::new);
     }
 
     public static void goAccount() {
-        setRoot(new AccountView());
+        setRoot("account", AccountView::new);
+    }
+
+    /** Vista di diagnostica, raggiungibile con un triplo clic sul titolo in Account. */
+    public static void goDiagnostics() {
+        setRoot("diagnostics", DiagnosticsView::new);
     }
 
     public static void goReportIssue() {
-        setRoot(new ReportIssueView());
+        setRoot("report", ReportIssueView::new);
     }
 
     public static void goAdminCreateUser() {
-        setRoot(new AdminCreateUserView());
+        setRoot("admin-create-user", AdminCreateUserView::new);
     }
 
     public static void goModifyIssue(IssueItem item) {
-        setRoot(new ModifyIssueView(item));
+        setRoot("modify-issue", () -> new ModifyIssueView(item));
     }
 
 
     public static void goViewIssues() {
-        setRoot(new PlaceholderView("Visualizza Issue"));
+        setRoot("view-issues", () -> new PlaceholderView("Visualizza Issue"));
     }
 
     public static void goEditIssue() {
-        setRoot(new PlaceholderView("Modifica Issue"));
+        setRoot("edit-issue", () -> new PlaceholderView("Modifica Issue"));
     }
 
     public static void goIssuesList() {
-        setRoot(new IssuesListView());
+        setRoot("issues-list", IssuesListView::new);
     }
 
-    private static void setRoot(Parent root) {
+    private static void setRoot(String name, Supplier<Parent> view) {
         if (scene == null) {
             return;
         }
+        long start = System.nanoTime();
+        Parent root = view.get();
+        if (UiPerf.ENABLED) {
+            UiPerf.navigated(name, start, System.nanoTime(), scene);
+        }
+        // la vista uscente non deve più ricevere callback dal lavoro in background
+        ViewScope.cancel(scene.getRoot());
         root.setOpacity(0);
         scene.setRoot(root);
         FadeTransition ft = new FadeTransition(Duration.millis(180), root);
@@ -1,13 +1,14 @@
 
 package application;
 
+import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -18,13 +19,28 @@ public class AuthApi {
         public UnauthorizedException() { super("401 Unauthorized"); }
     }
 
-    private static final HttpClient CLIENT = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(5))
-            .build();
+    private static final HttpTransport.ErrorMapping ERRORS = new HttpTransport.ErrorMapping(
+            (code, body) -> new UnauthorizedException(), null, null);
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
 
     public static LoginResponse login(String baseUrl, String email, String psw) throws Exception {
+        return HttpTransport.send(
+                loginRequest(baseUrl, email, psw),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8),
+                AuthApi::readLogin
+        );
+    }
+
+    public static CompletableFuture<LoginResponse> loginAsync(String baseUrl, String email, String psw) {
+        return HttpTransport.sendAsync(
+                () -> loginRequest(baseUrl, email, psw),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8),
+                AuthApi::readLogin
+        );
+    }
+
+    private static HttpRequest loginRequest(String baseUrl, String email, String psw) throws IOException {
         String url = baseUrl + "/bugboard/login";
 
         Map<String, Object> payload = Map.of(
@@ -34,19 +50,16 @@ public class AuthApi {
 
         String json = MAPPER.writeValueAsString(payload);
 
-        HttpRequest request = HttpRequest.newBuilder()
+        return HttpRequest.newBuilder()
                 .uri(URI.create(url))
                 .timeout(Duration.ofSeconds(10))
                 .header("Content-Type", "application/json; charset=utf-8")
                 .header("Accept", "application/json")
                 .POST(HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8))
                 .build();
+    }
 
-        HttpResponse<String> resp = CLIENT.send(
-                request,
-                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)
-        );
-
+    private static LoginResponse readLogin(HttpResponse<String> resp) throws IOException {
         if (resp.statusCode() == 200) {
             JsonNode n = MAPPER.readTree(resp.body());
 
@@ -66,10 +79,6 @@ public class AuthApi {
             return new LoginResponse(userId, role, token);
         }
 
-        if (resp.statusCode() == 401) {
-            throw new UnauthorizedException();
-        }
-
-        throw new RuntimeException("HTTP " + resp.statusCode() + " - " + resp.body());
+        throw HttpTransport.errorFor(resp.statusCode(), resp.body(), ERRORS);
     }
 }
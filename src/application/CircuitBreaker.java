@@ -0,0 +1,111 @@
+package application;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker per host del backend.
+ * Dopo FAILURE_THRESHOLD errori consecutivi (rete, timeout, 502/503/504) il circuito si apre:
+ * le richieste falliscono subito senza toccare il server. Passato il tempo di apertura
+ * lascia passare una sola richiesta di prova (half-open): se va bene si richiude,
+ * altrimenti si riapre per un tempo doppio (fino a MAX_OPEN_MILLIS).
+ */
+public final class CircuitBreaker {
+
+    /** Il circuito verso l'host è aperto: la richiesta non è stata inviata. */
+    public static class CircuitOpenException extends IOException {
+        public CircuitOpenException(long retryInMillis) {
+            super("Server non raggiungibile, nuovo tentativo tra " + Math.max(1, (retryInMillis + 999) / 1000) + " s");
+        }
+    }
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final long OPEN_MILLIS = 5_000;
+    private static final long MAX_OPEN_MILLIS = 60_000;
+
+    private static final class Circuit {
+        State state = State.CLOSED;
+        int failures;
+        long openUntil;
+        long openMillis = OPEN_MILLIS;
+        boolean probing;
+    }
+
+    private final Map<String, Circuit> circuits = new HashMap<>();
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    /** Richieste rifiutate senza inviarle perché il circuito era aperto. */
+    public long rejected() { return rejected.sum(); }
+    /** Volte in cui un circuito si è aperto. */
+    public long opened() { return opened.sum(); }
+
+    public synchronized State state(URI uri) {
+        Circuit c = circuits.get(origin(uri));
+        return c == null ? State.CLOSED : c.state;
+    }
+
+    /** Da chiamare prima di inviare: lancia CircuitOpenException se la richiesta non deve partire. */
+    synchronized void acquire(URI uri) throws CircuitOpenException {
+        Circuit c = circuits.get(origin(uri));
+        if (c == null || c.state == State.CLOSED) return;
+
+        long now = System.currentTimeMillis();
+        if (c.state == State.OPEN && now >= c.openUntil) {
+            c.state = State.HALF_OPEN;
+            c.probing = false;
+        }
+        if (c.state == State.HALF_OPEN && !c.probing) {
+            c.probing = true;
+            return;
+        }
+        rejected.increment();
+        throw new CircuitOpenException(Math.max(0, c.openUntil - now));
+    }
+
+    synchronized void success(URI uri) {
+        Circuit c = circuits.get(origin(uri));
+        if (c == null) return;
+        if (c.state != State.CLOSED) {
+            System.out.println("CircuitBreaker: " + origin(uri) + " di nuovo raggiungibile");
+        }
+        circuits.remove(origin(uri));
+    }
+
+    synchronized void failure(URI uri) {
+        Circuit c = circuits.computeIfAbsent(origin(uri), k -> new Circuit());
+        long now = System.currentTimeMillis();
+        if (c.state == State.HALF_OPEN) {
+            c.openMillis = Math.min(MAX_OPEN_MILLIS, c.openMillis * 2);
+            open(uri, c, now);
+            return;
+        }
+        if (c.state == State.CLOSED && ++c.failures >= FAILURE_THRESHOLD) {
+            open(uri, c, now);
+        }
+    }
+
+    /** La richiesta non ha dato un esito (cancellata, interrotta): libera il posto della prova. */
+    synchronized void abandon(URI uri) {
+        Circuit c = circuits.get(origin(uri));
+        if (c != null && c.state == State.HALF_OPEN) c.probing = false;
+    }
+
+    private void open(URI uri, Circuit c, long now) {
+        c.state = State.OPEN;
+        c.openUntil = now + c.openMillis;
+        c.probing = false;
+        opened.increment();
+        System.out.println("CircuitBreaker: " + origin(uri) + " aperto per " + c.openMillis + " ms");
+    }
+
+    private static String origin(URI uri) {
+        return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+    }
+}
@@ -0,0 +1,294 @@
+package application;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import javafx.animation.Animation;
+import javafx.animation.AnimationTimer;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.util.Duration;
+
+/**
+ * Vista di diagnostica nascosta (triplo clic sul titolo in Account): metriche per endpoint
+ * di {@link ApiMetrics}, contatori di cache, connessioni, retry, hedging e single-flight,
+ * e i frame del thread FX mentre la vista è aperta, per distinguere lentezza di rete e di rendering.
+ * Si aggiorna ogni secondo; "Esporta JSON" salva la stessa istantanea su file.
+ */
+public class DiagnosticsView extends BorderPane {
+
+    private static final double REFRESH_SECONDS = 1;
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final VBox content = new VBox(16);
+    private final Label status = new Label();
+
+    /** Frame dell'ultimo secondo, misurati solo finché la vista è aperta. */
+    private final UiPerf.FrameStats frames = new UiPerf.FrameStats(1024);
+    private double[] lastFrames = new double[0];
+    private int lastFrameCount;
+
+    public DiagnosticsView() {
+        getStyleClass().add("root");
+
+        setPadding(new Insets(22));
+        setTop(buildTopBar());
+
+        content.setPadding(new Insets(16, 0, 0, 0));
+        ScrollPane scroll = new ScrollPane(content);
+        scroll.setFitToWidth(true);
+        setCenter(scroll);
+
+        AnimationTimer frameTimer = new AnimationTimer() {
+            private long last;
+
+            @Override
+            public void handle(long now) {
+                if (last != 0) frames.add(now - last);
+                last = now;
+            }
+        };
+        Timeline refresh = new Timeline(new KeyFrame(Duration.seconds(REFRESH_SECONDS), e -> refresh()));
+        refresh.setCycleCount(Animation.INDEFINITE);
+
+        frameTimer.start();
+        refresh.play();
+        sceneProperty().addListener((obs, was, is) -> {
+            if (is == null) {
+                refresh.stop();
+                frameTimer.stop();
+            }
+        });
+        refresh();
+    }
+
+    private Node buildTopBar() {
+        Label title = new Label("BugBoard26");
+        title.getStyleClass().add("h1");
+
+        Label subtitle = new Label("Diagnostica");
+        subtitle.getStyleClass().add("muted");
+
+        VBox left = new VBox(2, title, subtitle);
+
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+
+        status.getStyleClass().add("muted");
+
+        Button export = new Button("Esporta JSON");
+        export.getStyleClass().add("btn-secondary");
+        export.setOnAction(e -> export());
+
+        Button back = new Button("← Account");
+        back.getStyleClass().add("btn-secondary");
+        back.setOnAction(e -> AppNavigator.goAccount());
+
+        HBox top = new HBox(12, left, spacer, status, export, back);
+        top.setAlignment(Pos.CENTER_LEFT);
+        top.getStyleClass().add("topbar");
+        top.setPadding(new Insets(14, 16, 14, 16));
+        return top;
+    }
+
+    private void refresh() {
+        lastFrameCount = frames.size();
+        lastFrames = frames.percentilesMillis();
+        frames.reset();
+
+        Map<String, Object> snap = snapshot();
+        content.getChildren().setAll(apiCard(snap), countersCard(snap), framesCard());
+    }
+
+    /** Istantanea completa, la stessa mostrata nella vista e scritta dall'export. */
+    private Map<String, Object> snapshot() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("takenAt", LocalDateTime.now().toString());
+        m.put("api", ApiMetrics.shared().snapshot());
+
+        Map<String, Object> net = new LinkedHashMap<>();
+        net.put("inFlight", ApiMetrics.shared().inFlight());
+        // simulati dal keep-alive: l'HttpClient non dice quali connessioni riusa davvero
+        net.put("connectionsOpenedEstimated", HttpTransport.estimatedConnectionsOpened());
+        net.put("connectionsReusedEstimated", HttpTransport.estimatedConnectionsReused());
+        net.put("retries", HttpTransport.retries());
+        net.put("breakerOpened", HttpTransport.breaker().opened());
+        net.put("breakerRejected", HttpTransport.breaker().rejected());
+        net.put("singleFlightExecutions", HttpTransport.flights().executions());
+        net.put("singleFlightCoalesced", HttpTransport.flights().coalesced());
+        net.put("singleFlightInFlight", HttpTransport.flights().inFlight());
+        net.put("hedged", HttpTransport.hedging().hedged());
+        net.put("hedgeWins", HttpTransport.hedging().hedgeWins());
+        net.put("hedgeDenied", HttpTransport.hedging().denied());
+        net.put("hedgeP95Ms", HttpTransport.hedging().p95Millis());
+        net.put("imagePlansLearned", IssueApi.imageEndpoints().learnedPlans());
+        net.put("imageHedges", IssueApi.imageEndpoints().hedges());
+        net.put("imageFallbacks", IssueApi.imageEndpoints().fallbacks());
+        m.put("network", net);
+
+        HttpCache http = HttpTransport.cache();
+        ImageCache images = ImageCache.shared();
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("httpHits", http.hits());
+        cache.put("httpMisses", http.misses());
+        cache.put("httpRevalidations", http.revalidations());
+        cache.put("httpBytes", http.sizeBytes());
+        cache.put("imageMemoryHits", images.memoryHits());
+        cache.put("imageDiskHits", images.diskHits());
+        cache.put("imageMisses", images.misses());
+        cache.put("imageMemoryHitRate", images.memoryHitRate());
+        cache.put("imageDiskHitRate", images.diskHitRate());
+        cache.put("imageMemoryBytes", images.memoryBytes());
+        cache.put("imageDiskBytes", images.diskBytes());
+        m.put("cache", cache);
+
+        Map<String, Object> fx = new LinkedHashMap<>();
+        fx.put("frames", lastFrameCount);
+        if (lastFrames.length == 4) {
+            fx.put("p50Ms", lastFrames[0]);
+            fx.put("p95Ms", lastFrames[1]);
+            fx.put("p99Ms", lastFrames[2]);
+            fx.put("maxMs", lastFrames[3]);
+        }
+        m.put("fxFrames", fx);
+        return m;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node apiCard(Map<String, Object> snap) {
+        VBox card = card("API per endpoint");
+        Map<String, Object> api = (Map<String, Object>) snap.get("api");
+        if (api.isEmpty()) {
+            Label none = new Label("Nessuna richiesta finora.");
+            none.getStyleClass().add("muted");
+            card.getChildren().add(none);
+            return card;
+        }
+
+        GridPane grid = new GridPane();
+        grid.setHgap(14);
+        grid.setVgap(6);
+        String[] head = { "Endpoint", "Richieste", "In corso", "Errori", "p50", "p95", "p99", "Ricevuti", "Inviati", "Status" };
+        for (int c = 0; c < head.length; c++) {
+            Label l = new Label(head[c]);
+            l.getStyleClass().add("muted");
+            grid.add(l, c, 0);
+        }
+        int row = 1;
+        for (Map.Entry<String, Object> en : api.entrySet()) {
+            Map<String, Object> e = (Map<String, Object>) en.getValue();
+            grid.addRow(row++,
+                    value(en.getKey()),
+                    value(String.valueOf(e.get("count"))),
+                    value(String.valueOf(e.get("inFlight"))),
+                    value(e.get("errors") + " (+" + e.get("cancelled") + " annullate)"),
+                    value(millis(e.get("p50Ms"))),
+                    value(millis(e.get("p95Ms"))),
+                    value(millis(e.get("p99Ms"))),
+                    value(bytes((Long) e.get("bytesIn"))),
+                    value(bytes((Long) e.get("bytesOut"))),
+                    value(String.valueOf(e.get("status"))));
+        }
+        card.getChildren().add(grid);
+        return card;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node countersCard(Map<String, Object> snap) {
+        VBox card = card("Rete e cache");
+        GridPane grid = new GridPane();
+        grid.setHgap(14);
+        grid.setVgap(6);
+        int row = 0;
+        for (String group : new String[] { "network", "cache" }) {
+            for (Map.Entry<String, Object> e : ((Map<String, Object>) snap.get(group)).entrySet()) {
+                Label key = new Label(e.getKey());
+                key.getStyleClass().add("muted");
+                Object v = e.getValue();
+                String text = v instanceof Double d ? String.format("%.1f%%", d * 100)
+                        : e.getKey().endsWith("Bytes") ? bytes((Long) v) : String.valueOf(v);
+                grid.addRow(row++, key, value(text));
+            }
+        }
+        Label note = new Label("*Estimated: stime simulate dal keep-alive, l'HttpClient del JDK non espone il pool delle connessioni.");
+        note.getStyleClass().add("muted");
+        note.setWrapText(true);
+        card.getChildren().addAll(grid, note);
+        return card;
+    }
+
+    private Node framesCard() {
+        VBox card = card("Rendering (thread FX, ultimo secondo)");
+        String text = lastFrames.length == 0 ? "nessun frame"
+                : String.format("%d frame, p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms",
+                        lastFrameCount, lastFrames[0], lastFrames[1], lastFrames[2], lastFrames[3]);
+        card.getChildren().add(value(text));
+        return card;
+    }
+
+    private void export() {
+        FileChooser fc = new FileChooser();
+        fc.setTitle("Esporta diagnostica");
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("JSON", "*.json"));
+        fc.setInitialFileName("diagnostics-" + LocalDateTime.now().format(FILE_STAMP) + ".json");
+        if (Files.isDirectory(ApiConfig.DATA_DIR)) fc.setInitialDirectory(ApiConfig.DATA_DIR.toFile());
+
+        File f = fc.showSaveDialog(getScene().getWindow());
+        if (f == null) return;
+
+        Map<String, Object> snap = snapshot();
+        ViewScope.of(this).onFx(ViewScope.of(this).supply(() -> {
+            MAPPER.writeValue(f, snap);
+            return f;
+        }), saved -> status.setText("Salvato " + saved.getName()),
+                ex -> status.setText("Export non riuscito: " + ex.getMessage()));
+    }
+
+    private static VBox card(String title) {
+        VBox card = new VBox(10);
+        card.getStyleClass().add("section-card");
+        card.setPadding(new Insets(18));
+        Label h = new Label(title);
+        h.getStyleClass().add("h2");
+        card.getChildren().add(h);
+        return card;
+    }
+
+    private static Label value(String text) {
+        Label l = new Label(text);
+        l.getStyleClass().add("kv-value");
+        return l;
+    }
+
+    private static String millis(Object ms) {
+        long v = (Long) ms;
+        return v < 0 ? "-" : "≤" + v + " ms";
+    }
+
+    private static String bytes(long b) {
+        if (b < 1024) return b + " B";
+        if (b < 1024 * 1024) return String.format("%.1f KB", b / 1024.0);
+        return String.format("%.1f MB", b / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,125 @@
+package application;
+
+import java.net.http.HttpRequest;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Quando e quanto fare hedging sulle GET di lettura.
+ * Per ogni endpoint (metodo + host + path con gli id sostituiti da {id}) tiene le ultime
+ * WINDOW latenze e ne ricava il p95: se la risposta tarda oltre quel valore conviene
+ * mandare una seconda richiesta. Il budget limita le seconde richieste a circa il 5%
+ * del traffico: ogni richiesta guadagna 1/20 di gettone, ogni hedge ne costa uno intero.
+ */
+public final class Hedging {
+
+    private static final int WINDOW = 256;
+    /** Sotto questo numero di campioni il p95 non è affidabile: niente hedge. */
+    private static final int MIN_SAMPLES = 20;
+    private static final long MIN_DELAY_MILLIS = 20;
+
+    /** Gettoni in millesimi: 50 per richiesta, 1000 per hedge, al massimo 10 hedge accumulati. */
+    private static final long TOKENS_PER_REQUEST = 50;
+    private static final long TOKENS_PER_HEDGE = 1000;
+    private static final long MAX_TOKENS = 10_000;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final AtomicLong tokens = new AtomicLong(2 * TOKENS_PER_HEDGE);
+
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+
+    /** Seconde richieste inviate. */
+    public long hedged() { return hedged.sum(); }
+    /** Volte in cui la seconda richiesta ha risposto per prima. */
+    public long hedgeWins() { return hedgeWins.sum(); }
+    /** Hedge non inviati perché il budget era esaurito. */
+    public long denied() { return denied.sum(); }
+
+    /** p95 attuale per endpoint, in ms (solo quelli con abbastanza campioni). */
+    public Map<String, Long> p95Millis() {
+        Map<String, Long> out = new TreeMap<>();
+        windows.forEach((k, w) -> {
+            long p = w.p95Nanos();
+            if (p >= 0) out.put(k, p / 1_000_000);
+        });
+        return out;
+    }
+
+    /** Endpoint della richiesta: /bugboard/issue/42/image -> GET host/bugboard/issue/{id}/image. */
+    public static String endpoint(HttpRequest req) {
+        String path = req.uri().getPath() == null ? "" : req.uri().getPath();
+        StringBuilder sb = new StringBuilder(req.method()).append(' ').append(req.uri().getHost());
+        for (String seg : path.split("/")) {
+            if (seg.isEmpty()) continue;
+            sb.append('/').append(seg.chars().allMatch(Character::isDigit) ? "{id}" : seg);
+        }
+        return sb.toString();
+    }
+
+    /** Dopo quanti ms mandare la seconda richiesta; -1 = non fare hedging su questo endpoint (ancora). */
+    long delayMillis(String endpoint) {
+        Window w = windows.get(endpoint);
+        long p95 = w == null ? -1 : w.p95Nanos();
+        return p95 < 0 ? -1 : Math.max(MIN_DELAY_MILLIS, p95 / 1_000_000);
+    }
+
+    /** Una richiesta candidata all'hedging è partita: accumula budget. */
+    void requested() {
+        tokens.updateAndGet(t -> Math.min(MAX_TOKENS, t + TOKENS_PER_REQUEST));
+    }
+
+    /** Prende un gettone per un hedge, se c'è. */
+    boolean tryAcquire() {
+        long t;
+        do {
+            t = tokens.get();
+            if (t < TOKENS_PER_HEDGE) {
+                denied.increment();
+                return false;
+            }
+        } while (!tokens.compareAndSet(t, t - TOKENS_PER_HEDGE));
+        hedged.increment();
+        return true;
+    }
+
+    /** Latenza (fino agli header) del tentativo che ha risposto. */
+    void record(String endpoint, long nanos, boolean wonByHedge) {
+        windows.computeIfAbsent(endpoint, k -> new Window()).add(nanos);
+        if (wonByHedge) hedgeWins.increment();
+    }
+
+    /** Ultime WINDOW latenze; il p95 si ricalcola solo ogni RECOMPUTE_EVERY campioni. */
+    private static final class Window {
+        private static final int RECOMPUTE_EVERY = 16;
+
+        private final long[] samples = new long[WINDOW];
+        private int next;
+        private int count;
+        private int sinceRecompute;
+        private long p95 = -1;
+
+        synchronized void add(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % WINDOW;
+            if (count < WINDOW) count++;
+            if (++sinceRecompute >= RECOMPUTE_EVERY || p95 < 0) {
+                sinceRecompute = 0;
+                if (count >= MIN_SAMPLES) {
+                    long[] s = Arrays.copyOf(samples, count);
+                    Arrays.sort(s);
+                    p95 = s[Math.min(count - 1, (int) Math.ceil(0.95 * count) - 1)];
+                }
+            }
+        }
+
+        synchronized long p95Nanos() {
+            return p95;
+        }
+    }
+}
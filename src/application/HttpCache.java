@@ -0,0 +1,511 @@
+package application;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import javax.net.ssl.SSLSession;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Cache HTTP privata (su disco) per le GET, usata da HttpTransport.
+ * Rispetta Cache-Control (no-store, no-cache, max-age) ed Expires, anche quando li chiede
+ * la richiesta; quando una risposta non è più fresca la rivalida con If-None-Match /
+ * If-Modified-Since: un 304 diventa un hit e costa solo gli header. Dimensione totale limitata,
+ * eviction LRU. I body passano per il disco a blocchi, senza mai tenerli interi in memoria.
+ */
+public final class HttpCache {
+
+    private static final long MAX_BYTES = 64L * 1024 * 1024;
+    private static final long MAX_ENTRY_BYTES = 8L * 1024 * 1024;
+    /** Dimensione dei blocchi letti dal disco quando si riproduce un body. */
+    private static final int REPLAY_CHUNK = 64 * 1024;
+
+    /** Header della risposta che teniamo per ricostruirla dalla cache. */
+    private static final List<String> KEPT_HEADERS = List.of(
+            "content-type", "etag", "last-modified", "cache-control", "expires"
+    );
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Meta(String uri, int status, Map<String, List<String>> headers, long freshUntil, long size) {}
+
+    private record Entry(String id, Meta meta) {}
+
+    private final Path dir;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastAccess = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+
+    HttpCache(Path dir) {
+        this.dir = dir;
+        loadIndex();
+    }
+
+    public long hits() { return hits.sum(); }
+    public long misses() { return misses.sum(); }
+    /** Risposte rivalidate con 304 (anche queste sono hit: nessun body scaricato). */
+    public long revalidations() { return revalidations.sum(); }
+    public long sizeBytes() { return totalBytes.get(); }
+
+    // ---- flusso usato da HttpTransport
+
+    /** Stato della cache per una GET: voce presente (forse) e richiesta da inviare. */
+    final class Lookup {
+        final String id;
+        final Entry entry;
+        final HttpRequest original;
+        /** La richiesta vuole una risposta confermata dal server (Cache-Control: no-cache). */
+        final boolean revalidate;
+        /** La richiesta non vuole passare dalla cache (Cache-Control: no-store). */
+        final boolean bypass;
+
+        private Lookup(String id, Entry entry, HttpRequest original, boolean revalidate, boolean bypass) {
+            this.id = id;
+            this.entry = entry;
+            this.original = original;
+            this.revalidate = revalidate;
+            this.bypass = bypass;
+        }
+
+        /** Risposta ancora fresca: si serve senza rete. */
+        boolean isFresh() {
+            return entry != null && !revalidate && entry.meta().freshUntil() > System.currentTimeMillis();
+        }
+
+        /** Richiesta da inviare: condizionale se abbiamo validatori. */
+        HttpRequest request() {
+            if (entry == null) return original;
+            HttpRequest.Builder b = HttpRequest.newBuilder(original, (k, v) -> true);
+            firstHeader(entry.meta(), "etag").ifPresent(v -> b.setHeader("If-None-Match", v));
+            firstHeader(entry.meta(), "last-modified").ifPresent(v -> b.setHeader("If-Modified-Since", v));
+            return b.build();
+        }
+
+        /** Handler che, su 200 cacheabile, copia il body in cache mentre arriva. */
+        <T> HttpResponse.BodyHandler<T> handler(HttpResponse.BodyHandler<T> downstream) {
+            if (bypass) return downstream;
+            return info -> {
+                if (info.statusCode() == 304 && entry != null) {
+                    return HttpResponse.BodySubscribers.replacing(null);
+                }
+                long freshUntil = freshUntil(info.headers());
+                if (info.statusCode() != 200 || freshUntil < 0) {
+                    return downstream.apply(info);
+                }
+                Meta meta = new Meta(original.uri().toString(), 200, keptHeaders(info.headers()), freshUntil, 0);
+                return new TeeSubscriber<>(downstream.apply(info), dir, id, (part, size) -> store(id, meta, part, size));
+            };
+        }
+
+        /** Completa lo scambio: su 304 ricostruisce la risposta dal disco. */
+        <T> HttpResponse<T> complete(HttpResponse<T> resp, HttpResponse.BodyHandler<T> downstream) throws IOException {
+            if (resp.statusCode() == 304 && entry != null) {
+                revalidations.increment();
+                Meta refreshed = new Meta(entry.meta().uri(), entry.meta().status(), entry.meta().headers(),
+                        Math.max(0, freshUntil(resp.headers())), entry.meta().size());
+                Entry updated = new Entry(id, refreshed);
+                entries.put(id, updated);
+                writeMeta(id, refreshed);
+                return replay(updated, original, downstream);
+            }
+            misses.increment();
+            return resp;
+        }
+
+        <T> HttpResponse<T> replayFresh(HttpResponse.BodyHandler<T> downstream) throws IOException {
+            hits.increment();
+            return replay(entry, original, downstream);
+        }
+    }
+
+    Lookup lookup(HttpRequest req) {
+        String id = keyOf(req);
+        String cc = String.join(",", req.headers().allValues("cache-control")).toLowerCase(Locale.ROOT);
+        if (cc.contains("no-store")) {
+            return new Lookup(id, null, req, true, true);
+        }
+        Entry e = entries.get(id);
+        if (e != null && !Files.exists(bodyFile(id))) {
+            remove(id);
+            e = null;
+        }
+        return new Lookup(id, e, req, cc.contains("no-cache"), false);
+    }
+
+    // ---- replay
+
+    private <T> HttpResponse<T> replay(Entry e, HttpRequest req, HttpResponse.BodyHandler<T> handler) throws IOException {
+        InputStream data = Files.newInputStream(bodyFile(e.id()));
+        touch(e.id());
+
+        HttpHeaders headers = HttpHeaders.of(e.meta().headers(), (k, v) -> true);
+        HttpResponse.ResponseInfo info = new HttpResponse.ResponseInfo() {
+            @Override public int statusCode() { return e.meta().status(); }
+            @Override public HttpHeaders headers() { return headers; }
+            @Override public HttpClient.Version version() { return HttpClient.Version.HTTP_1_1; }
+        };
+
+        HttpResponse.BodySubscriber<T> sub = handler.apply(info);
+        sub.onSubscribe(new FileSubscription(data, sub));
+        T body = sub.getBody().toCompletableFuture().join();
+        return new CachedResponse<>(info.statusCode(), req, headers, body);
+    }
+
+    /**
+     * Serve il body dal file a blocchi, solo quando il subscriber li chiede: con un parse
+     * in streaming il file si legge man mano, senza caricarlo tutto in memoria.
+     */
+    private static final class FileSubscription implements Flow.Subscription {
+        private final InputStream in;
+        private final HttpResponse.BodySubscriber<?> sub;
+        private long demand;
+        private boolean draining;
+        private boolean done;
+
+        FileSubscription(InputStream in, HttpResponse.BodySubscriber<?> sub) {
+            this.in = in;
+            this.sub = sub;
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (done) return;
+                if (n <= 0) {
+                    finish();
+                    sub.onError(new IllegalArgumentException("request(" + n + ")"));
+                    return;
+                }
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                // onNext può richiamare request: il ciclo già in corso serve anche la nuova domanda
+                if (draining) return;
+                draining = true;
+            }
+            try {
+                while (true) {
+                    synchronized (this) {
+                        if (done || demand == 0) {
+                            draining = false;
+                            return;
+                        }
+                        demand--;
+                    }
+                    byte[] chunk = in.readNBytes(REPLAY_CHUNK);
+                    if (chunk.length == 0) {
+                        finish();
+                        sub.onComplete();
+                        return;
+                    }
+                    sub.onNext(List.of(ByteBuffer.wrap(chunk)));
+                }
+            } catch (IOException ex) {
+                // dopo cancel il file è già chiuso: niente segnali a chi non li vuole più
+                if (finish()) sub.onError(ex);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            finish();
+        }
+
+        /** false se era già finita (completata, in errore o cancellata). */
+        private synchronized boolean finish() {
+            if (done) return false;
+            done = true;
+            draining = false;
+            try {
+                in.close();
+            } catch (IOException ignored) {}
+            return true;
+        }
+    }
+
+    private record CachedResponse<T>(int statusCode, HttpRequest request, HttpHeaders headers, T body)
+            implements HttpResponse<T> {
+        @Override public Optional<HttpResponse<T>> previousResponse() { return Optional.empty(); }
+        @Override public Optional<SSLSession> sslSession() { return Optional.empty(); }
+        @Override public URI uri() { return request.uri(); }
+        @Override public HttpClient.Version version() { return HttpClient.Version.HTTP_1_1; }
+    }
+
+    // ---- storage
+
+    /**
+     * Il body è già su disco nel file temporaneo part: qui lo si rinomina sulla voce.
+     * synchronized: con l'hedging due risposte alla stessa GET possono arrivare insieme.
+     */
+    private synchronized void store(String id, Meta meta, Path part, long size) {
+        Meta sized = new Meta(meta.uri(), meta.status(), meta.headers(), meta.freshUntil(), size);
+        try {
+            Files.move(part, bodyFile(id), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            writeMeta(id, sized);
+        } catch (IOException ex) {
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException ignored) {}
+            remove(id);
+            return;
+        }
+        Entry old = entries.put(id, new Entry(id, sized));
+        totalBytes.addAndGet(size - (old == null ? 0 : old.meta().size()));
+        lastAccess.put(id, System.currentTimeMillis());
+        evictIfNeeded();
+    }
+
+    private void writeMeta(String id, Meta meta) throws IOException {
+        MAPPER.writeValue(metaFile(id).toFile(), meta);
+    }
+
+    private void touch(String id) {
+        long now = System.currentTimeMillis();
+        lastAccess.put(id, now);
+        try {
+            Files.setLastModifiedTime(metaFile(id), FileTime.fromMillis(now));
+        } catch (IOException ignored) {}
+    }
+
+    private synchronized void evictIfNeeded() {
+        if (totalBytes.get() <= MAX_BYTES) return;
+        List<String> byAge = new ArrayList<>(entries.keySet());
+        byAge.sort(Comparator.comparingLong(id -> lastAccess.getOrDefault(id, 0L)));
+        for (String id : byAge) {
+            if (totalBytes.get() <= MAX_BYTES) break;
+            remove(id);
+        }
+    }
+
+    private void remove(String id) {
+        Entry e = entries.remove(id);
+        lastAccess.remove(id);
+        if (e != null) totalBytes.addAndGet(-e.meta().size());
+        try {
+            Files.deleteIfExists(bodyFile(id));
+            Files.deleteIfExists(metaFile(id));
+        } catch (IOException ignored) {}
+    }
+
+    private void loadIndex() {
+        if (!Files.isDirectory(dir)) return;
+        try (var files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                String name = p.getFileName().toString();
+                if (name.endsWith(".part")) {
+                    // body rimasto a metà da una chiusura durante il download
+                    Files.deleteIfExists(p);
+                    continue;
+                }
+                if (!name.endsWith(".meta")) continue;
+                String id = name.substring(0, name.length() - ".meta".length());
+                try {
+                    Meta meta = MAPPER.readValue(p.toFile(), Meta.class);
+                    if (!Files.exists(bodyFile(id))) {
+                        Files.deleteIfExists(p);
+                        continue;
+                    }
+                    entries.put(id, new Entry(id, meta));
+                    lastAccess.put(id, Files.getLastModifiedTime(p).toMillis());
+                    totalBytes.addAndGet(meta.size());
+                } catch (IOException ex) {
+                    // voce corrotta: la scartiamo
+                    Files.deleteIfExists(p);
+                    Files.deleteIfExists(bodyFile(id));
+                }
+            }
+        } catch (IOException ignored) {}
+        evictIfNeeded();
+    }
+
+    private Path bodyFile(String id) { return dir.resolve(id + ".body"); }
+    private Path metaFile(String id) { return dir.resolve(id + ".meta"); }
+
+    // ---- regole HTTP
+
+    /**
+     * Fino a quando la risposta è fresca (epoch ms), 0 = sempre da rivalidare,
+     * -1 = non memorizzabile.
+     */
+    private static long freshUntil(HttpHeaders h) {
+        String cc = String.join(",", h.allValues("cache-control")).toLowerCase(Locale.ROOT);
+        if (cc.contains("no-store")) return -1;
+
+        boolean hasValidator = h.firstValue("etag").isPresent() || h.firstValue("last-modified").isPresent();
+        long now = System.currentTimeMillis();
+
+        long maxAge = -1;
+        for (String directive : cc.split(",")) {
+            String d = directive.trim();
+            if (d.startsWith("max-age=")) {
+                try {
+                    maxAge = Long.parseLong(d.substring("max-age=".length()).trim());
+                } catch (NumberFormatException ignored) {}
+            }
+        }
+        if (cc.contains("no-cache")) {
+            return hasValidator ? 0 : -1;
+        }
+        if (maxAge > 0) {
+            return now + maxAge * 1000;
+        }
+        if (maxAge < 0) {
+            Optional<String> expires = h.firstValue("expires");
+            if (expires.isPresent()) {
+                try {
+                    long until = ZonedDateTime.parse(expires.get(), DateTimeFormatter.RFC_1123_DATE_TIME)
+                            .toInstant().toEpochMilli();
+                    if (until > now) return until;
+                } catch (DateTimeParseException ignored) {}
+            }
+        }
+        return hasValidator ? 0 : -1;
+    }
+
+    private static Map<String, List<String>> keptHeaders(HttpHeaders h) {
+        Map<String, List<String>> out = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (String name : KEPT_HEADERS) {
+            List<String> values = h.allValues(name);
+            if (!values.isEmpty()) out.put(name, values);
+        }
+        return out;
+    }
+
+    private static Optional<String> firstHeader(Meta meta, String name) {
+        for (Map.Entry<String, List<String>> e : meta.headers().entrySet()) {
+            if (e.getKey().equalsIgnoreCase(name) && !e.getValue().isEmpty()) {
+                return Optional.of(e.getValue().get(0));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /** Chiave: URL + utente (la cache è privata, le risposte dipendono dal token). */
+    private static String keyOf(HttpRequest req) {
+        String auth = req.headers().firstValue("Authorization").orElse("");
+        String raw = req.method() + " " + req.uri() + "\n" + auth;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(raw.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 20);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Passa i dati al subscriber originale e li scrive man mano in un file temporaneo
+     * nella cartella della cache; a body completo lo consegna a onComplete con la sua dimensione.
+     */
+    private static final class TeeSubscriber<T> implements HttpResponse.BodySubscriber<T> {
+        private final HttpResponse.BodySubscriber<T> downstream;
+        private final Path dir;
+        private final String id;
+        private final BiConsumer<Path, Long> onComplete;
+        private Path part;
+        private FileChannel copy;
+        private long size;
+        private boolean dropped;
+
+        TeeSubscriber(HttpResponse.BodySubscriber<T> downstream, Path dir, String id, BiConsumer<Path, Long> onComplete) {
+            this.downstream = downstream;
+            this.dir = dir;
+            this.id = id;
+            this.onComplete = onComplete;
+        }
+
+        @Override public CompletionStage<T> getBody() { return downstream.getBody(); }
+        @Override public void onSubscribe(Flow.Subscription s) { downstream.onSubscribe(s); }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (!dropped) {
+                try {
+                    if (copy == null) {
+                        Files.createDirectories(dir);
+                        part = Files.createTempFile(dir, id + "-", ".part");
+                        copy = FileChannel.open(part, StandardOpenOption.WRITE);
+                    }
+                    for (ByteBuffer b : items) {
+                        ByteBuffer dup = b.duplicate();
+                        size += dup.remaining();
+                        while (dup.hasRemaining()) copy.write(dup);
+                    }
+                    if (size > MAX_ENTRY_BYTES) drop(); // troppo grande: non la teniamo
+                } catch (IOException ex) {
+                    drop();
+                }
+            }
+            downstream.onNext(items);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            drop();
+            downstream.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            if (!dropped) {
+                try {
+                    if (copy == null) {
+                        // body vuoto
+                        Files.createDirectories(dir);
+                        part = Files.createTempFile(dir, id + "-", ".part");
+                    } else {
+                        copy.close();
+                    }
+                    onComplete.accept(part, size);
+                } catch (IOException ex) {
+                    drop();
+                }
+            }
+            downstream.onComplete();
+        }
+
+        private void drop() {
+            dropped = true;
+            try {
+                if (copy != null) copy.close();
+                if (part != null) Files.deleteIfExists(part);
+            } catch (IOException ignored) {}
+        }
+    }
+}
@@ -0,0 +1,741 @@
+package application;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Trasporto HTTP unico per IssueApi, AuthApi e AdminApi.
+ * Un solo HttpClient (HTTP/2 con fallback HTTP/1.1) = un solo pool di connessioni
+ * e un solo set di thread verso il backend. La mappatura 401/403/409 sta qui.
+ */
+public final class HttpTransport {
+
+    /**
+     * Come ogni API traduce gli status gestiti nelle proprie eccezioni.
+     * Un campo null significa "nessuna eccezione dedicata": si usa l'errore generico.
+     */
+    public record ErrorMapping(
+            BiFunction<Integer, String, RuntimeException> unauthorized,
+            Function<String, RuntimeException> forbidden,
+            Function<String, RuntimeException> conflict
+    ) {}
+
+    /** Trasforma la risposta nel risultato dell'API (parsing + mappatura status). */
+    @FunctionalInterface
+    public interface ResponseReader<T, R> {
+        R read(HttpResponse<T> resp) throws Exception;
+    }
+
+    /** Avanzamento di un upload: byte consegnati alla connessione su totale (-1 se ignoto). */
+    @FunctionalInterface
+    public interface Progress {
+        void sent(long bytes, long total);
+    }
+
+    /** Le connessioni inattive restano nel pool per questo tempo (default JDK: 30s). */
+    private static final long KEEP_ALIVE_SECONDS = 120;
+    private static final int IO_THREADS = 4;
+
+    static {
+        // va impostata prima che il pool del JDK venga inizializzato
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null) {
+            System.setProperty("jdk.httpclient.keepalive.timeout", String.valueOf(KEEP_ALIVE_SECONDS));
+        }
+    }
+
+    private static final AtomicInteger THREAD_SEQ = new AtomicInteger();
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(IO_THREADS, r -> {
+        Thread t = new Thread(r, "bugboard-http-" + THREAD_SEQ.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Per le sequenze di chiamate bloccanti (es. upload a blocchi) esposte come future. */
+    private static final ExecutorService BLOCKING = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("bugboard-blocking-", 0).factory()
+    );
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(EXECUTOR)
+            .build();
+
+    private static final ConnectionStats STATS = new ConnectionStats(KEEP_ALIVE_SECONDS * 1000);
+
+    private static final HttpCache CACHE = new HttpCache(ApiConfig.DATA_DIR.resolve("http-cache"));
+
+    private static final SingleFlight FLIGHTS = new SingleFlight();
+
+    private static final CircuitBreaker BREAKER = new CircuitBreaker();
+
+    /** Tentativi totali per le richieste ripetibili. */
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BASE_MILLIS = 250;
+    private static final long RETRY_MAX_MILLIS = 2_000;
+
+    private static final LongAdder RETRIES = new LongAdder();
+
+    private static final Hedging HEDGING = new Hedging();
+
+    private static final ApiMetrics METRICS = ApiMetrics.shared();
+
+    private HttpTransport() {}
+
+    /** Cache HTTP condivisa da tutte le GET (contatori hit/miss/revalidation). */
+    public static HttpCache cache() {
+        return CACHE;
+    }
+
+    /** Stato dei circuiti verso gli host del backend. */
+    public static CircuitBreaker breaker() {
+        return BREAKER;
+    }
+
+    /** Tentativi ripetuti dopo un errore di rete o un 502/503/504. */
+    public static long retries() {
+        return RETRIES.sum();
+    }
+
+    /** p95 per endpoint e contatori delle richieste di hedging. */
+    public static Hedging hedging() {
+        return HEDGING;
+    }
+
+    /** Contatori delle GET accorpate da {@link #sendShared}. */
+    public static SingleFlight flights() {
+        return FLIGHTS;
+    }
+
+    public static <T> HttpResponse<T> send(HttpRequest req, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        if (!"GET".equals(req.method())) {
+            return exchange(req, handler);
+        }
+        HttpCache.Lookup cached = CACHE.lookup(req);
+        if (cached.isFresh()) {
+            return cached.replayFresh(handler);
+        }
+        HttpResponse<T> resp = exchange(cached.request(), cached.handler(handler));
+        return cached.complete(resp, handler);
+    }
+
+    /**
+     * Come send, con hedging (solo GET): se la risposta tarda oltre il p95 osservato per l'endpoint
+     * parte una seconda richiesta identica, si usa la prima che risponde e l'altra viene cancellata.
+     * Con un body in streaming la gara è sugli header.
+     */
+    public static <T> HttpResponse<T> sendHedged(HttpRequest req, HttpResponse.BodyHandler<T> handler)
+            throws Exception {
+        if (!"GET".equals(req.method())) {
+            return exchange(req, handler);
+        }
+        HttpCache.Lookup cached = CACHE.lookup(req);
+        if (cached.isFresh()) {
+            return cached.replayFresh(handler);
+        }
+        CompletableFuture<HttpResponse<T>> f = exchangeHedged(cached.request(), cached.handler(handler));
+        HttpResponse<T> resp;
+        try {
+            resp = f.get();
+        } catch (InterruptedException ex) {
+            f.cancel(true);
+            throw ex;
+        } catch (ExecutionException ex) {
+            if (unwrap(ex) instanceof Exception cause) throw cause;
+            throw ex;
+        }
+        return cached.complete(resp, handler);
+    }
+
+    public static <T, R> R sendHedged(HttpRequest req, HttpResponse.BodyHandler<T> handler,
+                                      ResponseReader<T, R> reader) throws Exception {
+        return reader.read(sendHedged(req, handler));
+    }
+
+    /**
+     * Un tentativo alla volta attraverso il circuit breaker dell'host; GET/HEAD vengono ripetute
+     * su errori di rete e 502/503/504, le altre richieste solo se non sono mai partite ({@link #neverSent}).
+     */
+    private static <T> HttpResponse<T> exchange(HttpRequest req, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        URI uri = req.uri();
+        boolean idempotent = isIdempotent(req);
+        for (int attempt = 1; ; attempt++) {
+            BREAKER.acquire(uri);
+            STATS.acquire(uri);
+            ApiMetrics.Call call = METRICS.start(req);
+            HttpResponse<T> resp;
+            try {
+                resp = CLIENT.send(req, call.counting(handler));
+            } catch (IOException ex) {
+                call.fail();
+                STATS.discard(uri);
+                BREAKER.failure(uri);
+                if (!(idempotent || neverSent(ex)) || attempt >= MAX_ATTEMPTS) throw ex;
+                retrying(req, attempt, ex.toString());
+                Thread.sleep(backoffMillis(attempt));
+                continue;
+            } catch (InterruptedException | RuntimeException ex) {
+                call.abandon();
+                STATS.discard(uri);
+                BREAKER.abandon(uri);
+                throw ex;
+            }
+            call.end(resp.statusCode());
+            STATS.release(uri, resp.version());
+            if (!isServerFailure(resp.statusCode())) {
+                BREAKER.success(uri);
+                return resp;
+            }
+            BREAKER.failure(uri);
+            if (!idempotent || attempt >= MAX_ATTEMPTS) return resp;
+            discardBody(resp);
+            retrying(req, attempt, "HTTP " + resp.statusCode());
+            Thread.sleep(backoffMillis(attempt));
+        }
+    }
+
+    /** Come {@link #exchange}, senza tenere fermo un thread; cancellare la future interrompe tentativo o attesa. */
+    private static <T> CompletableFuture<HttpResponse<T>> exchangeAsync(HttpRequest req,
+                                                                        HttpResponse.BodyHandler<T> handler) {
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<?>> current = new AtomicReference<>();
+        attemptAsync(req, handler, 1, result, current);
+        result.whenComplete((r, ex) -> {
+            CompletableFuture<?> running = current.get();
+            if (result.isCancelled() && running != null) running.cancel(true);
+        });
+        return result;
+    }
+
+    private static <T> void attemptAsync(HttpRequest req, HttpResponse.BodyHandler<T> handler, int attempt,
+                                         CompletableFuture<HttpResponse<T>> result,
+                                         AtomicReference<CompletableFuture<?>> current) {
+        if (result.isDone()) return;
+        URI uri = req.uri();
+        try {
+            BREAKER.acquire(uri);
+        } catch (CircuitBreaker.CircuitOpenException ex) {
+            result.completeExceptionally(ex);
+            return;
+        }
+        STATS.acquire(uri);
+        ApiMetrics.Call call = METRICS.start(req);
+        CompletableFuture<HttpResponse<T>> exchange = CLIENT.sendAsync(req, call.counting(handler));
+        current.set(exchange);
+        if (result.isCancelled()) exchange.cancel(true);
+
+        exchange.whenComplete((resp, ex) -> {
+            if (ex != null) {
+                STATS.discard(uri);
+                Throwable cause = unwrap(ex);
+                if (!(cause instanceof IOException) || exchange.isCancelled()) {
+                    call.abandon();
+                    BREAKER.abandon(uri);
+                    result.completeExceptionally(cause);
+                    return;
+                }
+                call.fail();
+                BREAKER.failure(uri);
+                if (!(isIdempotent(req) || neverSent((IOException) cause)) || attempt >= MAX_ATTEMPTS) {
+                    result.completeExceptionally(cause);
+                    return;
+                }
+                retrying(req, attempt, cause.toString());
+                retryLater(req, handler, attempt, result, current);
+                return;
+            }
+            call.end(resp.statusCode());
+            STATS.release(uri, resp.version());
+            if (!isServerFailure(resp.statusCode())) {
+                BREAKER.success(uri);
+                result.complete(resp);
+                return;
+            }
+            BREAKER.failure(uri);
+            if (!isIdempotent(req) || attempt >= MAX_ATTEMPTS) {
+                result.complete(resp);
+                return;
+            }
+            discardBody(resp);
+            retrying(req, attempt, "HTTP " + resp.statusCode());
+            retryLater(req, handler, attempt, result, current);
+        });
+    }
+
+    /**
+     * Primo tentativo subito; il secondo dopo il p95 dell'endpoint, se c'è budget e il primo non ha risposto.
+     * Entrambi passano da exchangeAsync (retry e circuit breaker). Vince la prima risposta.
+     * Se vince il primo, il secondo viene cancellato. Se vince il secondo, il primo arriva comunque
+     * fino alla risposta (body chiuso senza leggerlo): la sua latenza entra nel p95 anche quando perde,
+     * altrimenti le risposte lente sparirebbero dalla finestra e gli hedge partirebbero sempre prima.
+     */
+    private static <T> CompletableFuture<HttpResponse<T>> exchangeHedged(HttpRequest req,
+                                                                         HttpResponse.BodyHandler<T> handler) {
+        String endpoint = Hedging.endpoint(req);
+        long delay = HEDGING.delayMillis(endpoint);
+        HEDGING.requested();
+
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        List<CompletableFuture<HttpResponse<T>>> attempts = new ArrayList<>();
+        int[] launched = {0};
+        int[] failed = {0};
+        boolean[] closed = {delay < 0};
+
+        Consumer<Boolean> launch = new Consumer<>() {
+            @Override
+            public void accept(Boolean hedge) {
+                long start = System.nanoTime();
+                CompletableFuture<HttpResponse<T>> attempt = exchangeAsync(req, handler);
+                synchronized (attempts) {
+                    attempts.add(attempt);
+                }
+                if (result.isDone()) attempt.cancel(true);
+                attempt.whenComplete((resp, ex) -> {
+                    if (ex == null) {
+                        boolean won = result.complete(resp);
+                        // un hedge che perde viene cancellato e non entra nella finestra
+                        if (won || !hedge) HEDGING.record(endpoint, System.nanoTime() - start, won && hedge);
+                        if (!won) {
+                            discardBody(resp);
+                        } else if (!hedge) {
+                            cancelOthers(attempts, attempt);
+                        }
+                        return;
+                    }
+                    boolean last = false;
+                    synchronized (attempts) {
+                        // nessun altro tentativo in corso: l'hedge non ha più senso
+                        if (++failed[0] == launched[0]) {
+                            closed[0] = true;
+                            last = true;
+                        }
+                    }
+                    if (last) result.completeExceptionally(unwrap(ex));
+                });
+            }
+        };
+
+        synchronized (attempts) {
+            launched[0] = 1;
+        }
+        launch.accept(false);
+
+        if (delay >= 0) {
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, EXECUTOR).execute(() -> {
+                synchronized (attempts) {
+                    if (closed[0] || result.isDone()) return;
+                    closed[0] = true;
+                    if (!HEDGING.tryAcquire()) return;
+                    launched[0]++;
+                }
+                launch.accept(true);
+            });
+        }
+        result.whenComplete((r, ex) -> {
+            if (result.isCancelled()) cancelOthers(attempts, null);
+        });
+        return result;
+    }
+
+    private static <T> void cancelOthers(List<CompletableFuture<HttpResponse<T>>> attempts,
+                                         CompletableFuture<HttpResponse<T>> winner) {
+        List<CompletableFuture<HttpResponse<T>>> copy;
+        synchronized (attempts) {
+            copy = List.copyOf(attempts);
+        }
+        for (CompletableFuture<HttpResponse<T>> a : copy) {
+            if (a != winner) a.cancel(true);
+        }
+    }
+
+    private static <T> void retryLater(HttpRequest req, HttpResponse.BodyHandler<T> handler, int attempt,
+                                       CompletableFuture<HttpResponse<T>> result,
+                                       AtomicReference<CompletableFuture<?>> current) {
+        CompletableFuture.delayedExecutor(backoffMillis(attempt), TimeUnit.MILLISECONDS, EXECUTOR)
+                .execute(() -> attemptAsync(req, handler, attempt + 1, result, current));
+    }
+
+    /**
+     * GET/HEAD non cambiano lo stato del server se arrivano due volte: si ripetono su errori di rete e 502/503/504.
+     * Le altre (creazione, modifica, upload) si ripetono solo se non sono mai partite, vedi {@link #neverSent}.
+     */
+    private static boolean isIdempotent(HttpRequest req) {
+        String m = req.method();
+        return "GET".equals(m) || "HEAD".equals(m);
+    }
+
+    /** Connessione mai stabilita: il server non ha ricevuto nulla, ripetere non può duplicare. */
+    private static boolean neverSent(IOException ex) {
+        return ex instanceof ConnectException || ex instanceof HttpConnectTimeoutException;
+    }
+
+    /** Errori che indicano un backend in difficoltà (non un problema della singola richiesta). */
+    private static boolean isServerFailure(int status) {
+        return status == 502 || status == 503 || status == 504;
+    }
+
+    /** Full jitter: attesa casuale tra 0 e base * 2^(tentativo-1), con un tetto. */
+    private static long backoffMillis(int attempt) {
+        long cap = Math.min(RETRY_MAX_MILLIS, RETRY_BASE_MILLIS << (attempt - 1));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private static void retrying(HttpRequest req, int attempt, String why) {
+        RETRIES.increment();
+        System.out.println("HttpTransport: " + req.method() + " " + req.uri() + " fallita (" + why
+                + "), tentativo " + (attempt + 1) + "/" + MAX_ATTEMPTS);
+    }
+
+    /** Chiude un body in streaming che non verrà letto (risposta scartata per ripetere). */
+    private static void discardBody(HttpResponse<?> resp) {
+        if (resp.body() instanceof AutoCloseable c) {
+            try {
+                c.close();
+            } catch (Exception ignored) {}
+        }
+    }
+
+    public static <T, R> R send(HttpRequest req, HttpResponse.BodyHandler<T> handler, ResponseReader<T, R> reader)
+            throws Exception {
+        return reader.read(send(req, handler));
+    }
+
+    /**
+     * Come send, ma una GET identica (stessa {@link SingleFlight#key}) già in corso viene riusata:
+     * un solo scambio e un solo risultato, condiviso tra i chiamanti.
+     */
+    public static <T, R> R sendShared(HttpRequest req, HttpResponse.BodyHandler<T> handler,
+                                      ResponseReader<T, R> reader) throws Exception {
+        return sendShared(req, handler, reader, false);
+    }
+
+    /** Come {@link #sendShared}; con hedged lo scambio condiviso usa {@link #sendHedged}. */
+    public static <T, R> R sendShared(HttpRequest req, HttpResponse.BodyHandler<T> handler,
+                                      ResponseReader<T, R> reader, boolean hedged) throws Exception {
+        return FLIGHTS.call(SingleFlight.key(req),
+                () -> hedged ? sendHedged(req, handler, reader) : send(req, handler, reader));
+    }
+
+    /** Variante non bloccante di {@link #sendShared}; cancellare la future stacca solo questo chiamante. */
+    public static <T, R> CompletableFuture<R> sendSharedAsync(Callable<HttpRequest> request,
+                                                               HttpResponse.BodyHandler<T> handler,
+                                                               ResponseReader<T, R> reader) {
+        return sendSharedAsync(request, handler, reader, false);
+    }
+
+    public static <T, R> CompletableFuture<R> sendSharedAsync(Callable<HttpRequest> request,
+                                                               HttpResponse.BodyHandler<T> handler,
+                                                               ResponseReader<T, R> reader,
+                                                               boolean hedged) {
+        HttpRequest req;
+        try {
+            req = request.call();
+        } catch (Exception ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        return FLIGHTS.async(SingleFlight.key(req), () -> sendAsync(() -> req, handler, reader, hedged));
+    }
+
+    /**
+     * Variante non bloccante: nessun thread resta fermo in attesa della risposta.
+     * Se la future restituita viene cancellata, lo scambio HTTP in corso viene interrotto.
+     * Gli errori di costruzione della richiesta arrivano come future fallita.
+     */
+    public static <T, R> CompletableFuture<R> sendAsync(Callable<HttpRequest> request,
+                                                         HttpResponse.BodyHandler<T> handler,
+                                                         ResponseReader<T, R> reader) {
+        return sendAsync(request, handler, reader, false);
+    }
+
+    /** Variante non bloccante di {@link #sendHedged}. */
+    public static <T, R> CompletableFuture<R> sendHedgedAsync(Callable<HttpRequest> request,
+                                                               HttpResponse.BodyHandler<T> handler,
+                                                               ResponseReader<T, R> reader) {
+        return sendAsync(request, handler, reader, true);
+    }
+
+    private static <T, R> CompletableFuture<R> sendAsync(Callable<HttpRequest> request,
+                                                          HttpResponse.BodyHandler<T> handler,
+                                                          ResponseReader<T, R> reader,
+                                                          boolean hedged) {
+        HttpRequest req;
+        HttpCache.Lookup cached = null;
+        try {
+            req = request.call();
+            if ("GET".equals(req.method())) {
+                cached = CACHE.lookup(req);
+                if (cached.isFresh()) {
+                    return CompletableFuture.completedFuture(reader.read(cached.replayFresh(handler)));
+                }
+            }
+        } catch (Exception ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+
+        HttpCache.Lookup lookup = cached;
+        HttpRequest actual = lookup == null ? req : lookup.request();
+        HttpResponse.BodyHandler<T> actualHandler = lookup == null ? handler : lookup.handler(handler);
+        CompletableFuture<HttpResponse<T>> exchange = hedged && lookup != null
+                ? exchangeHedged(actual, actualHandler)
+                : exchangeAsync(actual, actualHandler);
+        CompletableFuture<R> result = new CompletableFuture<>();
+
+        exchange.whenComplete((resp, ex) -> {
+            if (ex != null) {
+                result.completeExceptionally(unwrap(ex));
+                return;
+            }
+            try {
+                HttpResponse<T> full = lookup == null ? resp : lookup.complete(resp, handler);
+                result.complete(reader.read(full));
+            } catch (Exception readEx) {
+                result.completeExceptionally(readEx);
+            }
+        });
+        result.whenComplete((r, ex) -> {
+            if (result.isCancelled()) exchange.cancel(true);
+        });
+        return result;
+    }
+
+    /**
+     * Esegue work (che può fare più chiamate bloccanti) su un thread virtuale.
+     * Cancellare la future interrompe il thread e quindi lo scambio HTTP in corso.
+     */
+    public static <T> CompletableFuture<T> supplyBlocking(Callable<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> running = BLOCKING.submit(() -> {
+            try {
+                result.complete(work.call());
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        result.whenComplete((r, ex) -> {
+            if (result.isCancelled()) running.cancel(true);
+        });
+        return result;
+    }
+
+    /**
+     * Come thenCompose, ma la cancellazione del risultato raggiunge anche la chiamata in corso
+     * (es. crea issue -> upload immagine).
+     */
+    public static <A, B> CompletableFuture<B> chain(CompletableFuture<A> first,
+                                                    Function<? super A, CompletableFuture<B>> next) {
+        return link(first, (a, ex) -> ex == null ? next.apply(a) : CompletableFuture.failedFuture(ex));
+    }
+
+    /**
+     * Come exceptionallyCompose, con la stessa propagazione della cancellazione di {@link #chain}.
+     */
+    public static <T> CompletableFuture<T> recover(CompletableFuture<T> first,
+                                                   Function<Throwable, CompletableFuture<T>> fallback) {
+        return link(first, (t, ex) -> ex == null ? CompletableFuture.completedFuture(t) : fallback.apply(ex));
+    }
+
+    private static <A, B> CompletableFuture<B> link(CompletableFuture<A> first,
+                                                    BiFunction<A, Throwable, CompletableFuture<B>> next) {
+        CompletableFuture<B> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<?>> current = new AtomicReference<>(first);
+
+        first.whenComplete((a, ex) -> {
+            if (result.isDone()) return;
+            CompletableFuture<B> second;
+            try {
+                second = next.apply(a, ex == null ? null : unwrap(ex));
+            } catch (RuntimeException applyEx) {
+                result.completeExceptionally(applyEx);
+                return;
+            }
+            current.set(second);
+            if (result.isCancelled()) {
+                second.cancel(true);
+                return;
+            }
+            second.whenComplete((b, ex2) -> {
+                if (ex2 != null) {
+                    result.completeExceptionally(unwrap(ex2));
+                } else {
+                    result.complete(b);
+                }
+            });
+        });
+        result.whenComplete((b, ex) -> {
+            if (result.isCancelled()) current.get().cancel(true);
+        });
+        return result;
+    }
+
+    /** Toglie i wrapper CompletionException/ExecutionException per mostrare l'errore vero. */
+    public static Throwable unwrap(Throwable ex) {
+        Throwable cur = ex;
+        while ((cur instanceof CompletionException || cur instanceof ExecutionException) && cur.getCause() != null) {
+            cur = cur.getCause();
+        }
+        return cur;
+    }
+
+    /**
+     * Lancia l'eccezione corrispondente se lo status non è tra quelli attesi.
+     */
+    public static void checkStatus(int status, String body, ErrorMapping errors, int... okCodes) {
+        for (int ok : okCodes) {
+            if (status == ok) return;
+        }
+        throw errorFor(status, body, errors);
+    }
+
+    public static RuntimeException errorFor(int status, String body, ErrorMapping errors) {
+        if (status == 401 && errors.unauthorized() != null) {
+            return errors.unauthorized().apply(status, body);
+        }
+        if (status == 403 && errors.forbidden() != null) {
+            return errors.forbidden().apply(body);
+        }
+        if (status == 409 && errors.conflict() != null) {
+            return errors.conflict().apply(body);
+        }
+        if (isServerFailure(status)) {
+            return new RuntimeException("Server momentaneamente non disponibile (HTTP " + status + "), riprova tra poco");
+        }
+        return new RuntimeException("HTTP " + status + (body == null || body.isBlank() ? "" : " - " + body));
+    }
+
+    /**
+     * Avvolge il body di una richiesta contando i byte man mano che il client li prende;
+     * i buffer passano così come sono, senza copie.
+     */
+    public static HttpRequest.BodyPublisher withProgress(HttpRequest.BodyPublisher body, Progress progress) {
+        if (progress == null) return body;
+        return new HttpRequest.BodyPublisher() {
+            @Override
+            public long contentLength() {
+                return body.contentLength();
+            }
+
+            @Override
+            public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+                long total = body.contentLength();
+                body.subscribe(new Flow.Subscriber<>() {
+                    private long sent;
+
+                    @Override public void onSubscribe(Flow.Subscription s) { subscriber.onSubscribe(s); }
+
+                    @Override
+                    public void onNext(ByteBuffer item) {
+                        sent += item.remaining();
+                        subscriber.onNext(item);
+                        progress.sent(sent, total);
+                    }
+
+                    @Override public void onError(Throwable t) { subscriber.onError(t); }
+                    @Override public void onComplete() { subscriber.onComplete(); }
+                });
+            }
+        };
+    }
+
+    /** Stima, non un dato del pool: vedi {@link ConnectionStats}. */
+    public static long estimatedConnectionsOpened() { return STATS.opened.sum(); }
+    /** Stima, non un dato del pool: vedi {@link ConnectionStats}. */
+    public static long estimatedConnectionsReused() { return STATS.reused.sum(); }
+
+    /**
+     * Stima delle connessioni nuove vs riusate, non una misura.
+     * L'HttpClient del JDK non espone gli eventi del pool, quindi lo simuliamo:
+     * per ogni origin teniamo le connessioni rilasciate e ancora entro il keep-alive.
+     * Con HTTP/2 tutte le richieste verso un origin condividono una sola connessione.
+     */
+    private static final class ConnectionStats {
+        private final long keepAliveMillis;
+        private final Map<String, Deque<Long>> idle = new HashMap<>();
+        private final Map<String, Integer> active = new HashMap<>();
+        private final Map<String, Long> http2Until = new HashMap<>();
+        final LongAdder opened = new LongAdder();
+        final LongAdder reused = new LongAdder();
+
+        ConnectionStats(long keepAliveMillis) {
+            this.keepAliveMillis = keepAliveMillis;
+        }
+
+        synchronized void acquire(URI uri) {
+            String origin = origin(uri);
+            long now = System.currentTimeMillis();
+            active.merge(origin, 1, Integer::sum);
+
+            Long h2 = http2Until.get(origin);
+            if (h2 != null && (h2 == Long.MAX_VALUE || h2 > now)) {
+                reused.increment();
+                return;
+            }
+
+            Deque<Long> q = idle.get(origin);
+            while (q != null && !q.isEmpty() && now - q.peekFirst() > keepAliveMillis) {
+                q.pollFirst();
+            }
+            if (q != null && !q.isEmpty()) {
+                q.pollLast();
+                reused.increment();
+            } else {
+                opened.increment();
+            }
+        }
+
+        synchronized void release(URI uri, HttpClient.Version version) {
+            String origin = origin(uri);
+            long now = System.currentTimeMillis();
+            int left = active.merge(origin, -1, Integer::sum);
+
+            if (version == HttpClient.Version.HTTP_2) {
+                // connessione multiplexata: resta valida finché c'è traffico o entro il keep-alive
+                http2Until.put(origin, left > 0 ? Long.MAX_VALUE : now + keepAliveMillis);
+                return;
+            }
+            idle.computeIfAbsent(origin, k -> new ArrayDeque<>()).addLast(now);
+        }
+
+        /** Errore di I/O: la connessione non torna nel pool. */
+        synchronized void discard(URI uri) {
+            String origin = origin(uri);
+            active.merge(origin, -1, Integer::sum);
+            http2Until.remove(origin);
+        }
+
+        private static String origin(URI uri) {
+            return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+        }
+    }
+}
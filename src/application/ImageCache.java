@@ -0,0 +1,295 @@
+package application;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+import javax.imageio.ImageIO;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritablePixelFormat;
+
+/**
+ * Cache a due livelli per le immagini allegate alle issue.
+ * In memoria le Image già decodificate (budget in byte di pixel, LRU);
+ * su disco i byte scaricati, con chiave id issue + updatedAt: un'issue modificata
+ * ha una chiave nuova e la vecchia immagine esce per LRU.
+ *
+ * Le viste chiedono l'immagine alla dimensione del riquadro in cui la mostrano:
+ * viene decodificata a quella dimensione e la miniatura (PNG) viene salvata
+ * accanto all'originale, così le aperture successive non decodificano più l'originale.
+ * Larghezza e altezza 0 = dimensione originale.
+ */
+public final class ImageCache {
+
+    /** Budget della memoria, stimato come larghezza x altezza x 4 byte. */
+    private static final long MEMORY_MAX_BYTES = 48L * 1024 * 1024;
+    private static final long DISK_MAX_BYTES = 128L * 1024 * 1024;
+
+    private static final ImageCache SHARED = new ImageCache(ApiConfig.DATA_DIR.resolve("images"));
+
+    private final Path dir;
+
+    private final LinkedHashMap<String, Image> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+
+    private final Map<String, Long> diskSize = new ConcurrentHashMap<>();
+    private final Map<String, Long> diskAccess = new ConcurrentHashMap<>();
+    private final AtomicLong diskBytes = new AtomicLong();
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private ImageCache(Path dir) {
+        this.dir = dir;
+        loadIndex();
+    }
+
+    public static ImageCache shared() {
+        return SHARED;
+    }
+
+    public long memoryHits() { return memoryHits.sum(); }
+    public long diskHits() { return diskHits.sum(); }
+    public long misses() { return misses.sum(); }
+    public synchronized long memoryBytes() { return memoryBytes; }
+    public long diskBytes() { return diskBytes.get(); }
+
+    /** Frazione delle richieste servite dalla memoria. */
+    public double memoryHitRate() {
+        long m = memoryHits(), total = m + diskHits() + misses();
+        return total == 0 ? 0 : (double) m / total;
+    }
+
+    /** Frazione delle richieste non servite dalla memoria che il disco ha evitato di scaricare. */
+    public double diskHitRate() {
+        long d = diskHits(), total = d + misses();
+        return total == 0 ? 0 : (double) d / total;
+    }
+
+    /** Immagine già decodificata a quella dimensione, se c'è (dal thread FX, per mostrarla subito). */
+    public Image cached(IssueItem item, String path, int width, int height) {
+        Image img = memoryGet(sized(keyOf(item, path), width, height));
+        if (img != null) memoryHits.increment();
+        return img;
+    }
+
+    /** true se l'immagine a quella dimensione è già in memoria (senza contarlo come hit). */
+    public boolean contains(IssueItem item, String path, int width, int height) {
+        return memoryGet(sized(keyOf(item, path), width, height)) != null;
+    }
+
+    /**
+     * Memoria, poi miniatura su disco, poi originale (disco o rete, con downloadIssueImageWithFallback);
+     * decodifica alla dimensione chiesta e popola i livelli. Bloccante: da un thread in background.
+     */
+    public Image load(IssueItem item, String path, int width, int height) throws Exception {
+        return load(item, path, width, height, null);
+    }
+
+    /** Come load; downloaded riceve i byte scaricati dalla rete (solo se è stato necessario scaricare). */
+    public Image load(IssueItem item, String path, int width, int height, LongConsumer downloaded) throws Exception {
+        String key = keyOf(item, path);
+        String sizedKey = sized(key, width, height);
+        Image img = memoryGet(sizedKey);
+        if (img != null) {
+            memoryHits.increment();
+            return img;
+        }
+
+        if (!sizedKey.equals(key)) {
+            byte[] thumb = diskGet(sizedKey);
+            if (thumb != null) {
+                img = new Image(new ByteArrayInputStream(thumb));
+                if (!img.isError()) {
+                    diskHits.increment();
+                    memoryPut(sizedKey, img);
+                    return img;
+                }
+                diskRemove(sizedKey);
+            }
+        }
+
+        byte[] data = diskGet(key);
+        if (data != null) {
+            diskHits.increment();
+        } else {
+            misses.increment();
+            data = IssueApi.downloadIssueImageWithFallback(item.id(), path);
+            diskPut(key, data);
+            if (downloaded != null) downloaded.accept(data.length);
+        }
+
+        img = sizedKey.equals(key)
+                ? new Image(new ByteArrayInputStream(data))
+                : new Image(new ByteArrayInputStream(data), width, height, true, true);
+        if (img.isError()) return img;
+
+        memoryPut(sizedKey, img);
+        if (!sizedKey.equals(key)) {
+            byte[] png = encodePng(img);
+            if (png != null && png.length < data.length) diskPut(sizedKey, png);
+        }
+        return img;
+    }
+
+    /** Dimentica tutte le versioni dell'immagine dell'issue (es. dopo un nuovo upload). */
+    public void invalidate(Long issueId) {
+        if (issueId == null) return;
+        String prefix = issueId + "-";
+        synchronized (this) {
+            Iterator<Map.Entry<String, Image>> it = memory.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Image> e = it.next();
+                if (e.getKey().startsWith(prefix)) {
+                    memoryBytes -= pixelBytes(e.getValue());
+                    it.remove();
+                }
+            }
+        }
+        for (String key : List.copyOf(diskSize.keySet())) {
+            if (key.startsWith(prefix)) diskRemove(key);
+        }
+    }
+
+    /** Miniatura come PNG (senza javafx-swing: pixel copiati in una BufferedImage). */
+    private static byte[] encodePng(Image img) {
+        int w = (int) img.getWidth(), h = (int) img.getHeight();
+        PixelReader reader = img.getPixelReader();
+        if (reader == null || w <= 0 || h <= 0) return null;
+        int[] argb = new int[w * h];
+        reader.getPixels(0, 0, w, h, WritablePixelFormat.getIntArgbInstance(), argb, 0, w);
+        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        out.setRGB(0, 0, w, h, argb, 0, w);
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try {
+            return ImageIO.write(out, "png", buf) ? buf.toByteArray() : null;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    // ---- memoria
+
+    private synchronized Image memoryGet(String key) {
+        return memory.get(key);
+    }
+
+    private synchronized void memoryPut(String key, Image img) {
+        long size = pixelBytes(img);
+        if (size > MEMORY_MAX_BYTES) return;
+        Image old = memory.put(key, img);
+        memoryBytes += size - (old == null ? 0 : pixelBytes(old));
+        Iterator<Image> eldest = memory.values().iterator();
+        while (memoryBytes > MEMORY_MAX_BYTES && eldest.hasNext()) {
+            memoryBytes -= pixelBytes(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    private static long pixelBytes(Image img) {
+        return (long) img.getWidth() * (long) img.getHeight() * 4;
+    }
+
+    // ---- disco
+
+    private byte[] diskGet(String key) {
+        if (!diskSize.containsKey(key)) return null;
+        Path f = file(key);
+        try {
+            byte[] data = Files.readAllBytes(f);
+            long now = System.currentTimeMillis();
+            diskAccess.put(key, now);
+            Files.setLastModifiedTime(f, FileTime.fromMillis(now));
+            return data;
+        } catch (IOException ex) {
+            diskRemove(key);
+            return null;
+        }
+    }
+
+    private void diskPut(String key, byte[] data) {
+        if (data.length > DISK_MAX_BYTES) return;
+        try {
+            Files.createDirectories(dir);
+            Files.write(file(key), data);
+        } catch (IOException ex) {
+            diskRemove(key);
+            return;
+        }
+        Long old = diskSize.put(key, (long) data.length);
+        diskBytes.addAndGet(data.length - (old == null ? 0 : old));
+        diskAccess.put(key, System.currentTimeMillis());
+        evictDisk();
+    }
+
+    private synchronized void evictDisk() {
+        if (diskBytes.get() <= DISK_MAX_BYTES) return;
+        List<String> byAge = new ArrayList<>(diskSize.keySet());
+        byAge.sort(Comparator.comparingLong(k -> diskAccess.getOrDefault(k, 0L)));
+        for (String key : byAge) {
+            if (diskBytes.get() <= DISK_MAX_BYTES) break;
+            diskRemove(key);
+        }
+    }
+
+    private void diskRemove(String key) {
+        Long size = diskSize.remove(key);
+        diskAccess.remove(key);
+        if (size != null) diskBytes.addAndGet(-size);
+        try {
+            Files.deleteIfExists(file(key));
+        } catch (IOException ignored) {}
+    }
+
+    private void loadIndex() {
+        if (!Files.isDirectory(dir)) return;
+        try (var files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                String name = p.getFileName().toString();
+                if (!name.endsWith(".img")) continue;
+                String key = name.substring(0, name.length() - ".img".length());
+                try {
+                    long size = Files.size(p);
+                    diskSize.put(key, size);
+                    diskAccess.put(key, Files.getLastModifiedTime(p).toMillis());
+                    diskBytes.addAndGet(size);
+                } catch (IOException ignored) {}
+            }
+        } catch (IOException ignored) {}
+        evictDisk();
+    }
+
+    private Path file(String key) {
+        return dir.resolve(key + ".img");
+    }
+
+    private static String sized(String key, int width, int height) {
+        return width <= 0 && height <= 0 ? key : key + "@" + width + "x" + height;
+    }
+
+    /** id + updatedAt (o createdAt) + hash del path: cambia quando cambia l'allegato. */
+    private static String keyOf(IssueItem item, String path) {
+        LocalDateTime stamp = item.updatedAt() != null ? item.updatedAt() : item.createdAt();
+        long version = stamp == null ? 0 : stamp.toEpochSecond(ZoneOffset.UTC) * 1000 + stamp.getNano() / 1_000_000;
+        return item.id() + "-" + version + "-" + Integer.toHexString(path == null ? 0 : path.hashCode());
+    }
+}
@@ -0,0 +1,88 @@
+package application;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Quale variante dell'URL di un'immagine funziona, per host del backend:
+ * l'endpoint /bugboard/issue/{id}/image (PRIMARY) o il path salvato nell'issue (STORED).
+ * La variante che ha risposto per ultima viene provata per prima finché la conoscenza è recente;
+ * una variante che ha risposto senza immagine (4xx o body di altro tipo) va in fondo per poco tempo;
+ * errori di rete, 5xx e circuito aperto non contano, non dicono nulla sulla variante.
+ * Se non si sa nulla, o quel che si sa è vecchio, conviene mettere in gara le due varianti.
+ */
+public final class ImageEndpoints {
+
+    public enum Variant { PRIMARY, STORED }
+
+    /** Ordine di prova; hedge = far partire anche la seconda se la prima tarda. */
+    public record Plan(Variant first, Variant second, boolean hedge) {}
+
+    /** Dopo questo tempo la variante vincente va riconfermata (con una gara). */
+    private static final long KNOWLEDGE_TTL_MILLIS = 10 * 60_000;
+    /** Per questo tempo una variante fallita non viene provata per prima. */
+    private static final long NEGATIVE_TTL_MILLIS = 60_000;
+
+    private record Knowledge(Variant winner, long learnedAt) {}
+
+    private final Map<String, Knowledge> learned = new ConcurrentHashMap<>();
+    private final Map<String, Long> failingUntil = new ConcurrentHashMap<>();
+
+    private final LongAdder learnedPlans = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    /** Download pianificati con una variante già nota (un solo round trip se è ancora giusta). */
+    public long learnedPlans() { return learnedPlans.sum(); }
+    /** Seconde richieste partite in parallelo perché la prima tardava. */
+    public long hedges() { return hedges.sum(); }
+    /** Seconde richieste partite perché la prima era fallita. */
+    public long fallbacks() { return fallbacks.sum(); }
+
+    public Plan plan(String host) {
+        long now = System.currentTimeMillis();
+        Knowledge k = learned.get(host);
+        Variant first = Variant.PRIMARY;
+        boolean hedge = true;
+        if (k != null && now - k.learnedAt() < KNOWLEDGE_TTL_MILLIS) {
+            first = k.winner();
+            hedge = false;
+        }
+        Variant second = other(first);
+        if (failing(host, first, now) && !failing(host, second, now)) {
+            // si sa già che la prima non va: niente gara, si parte dall'altra
+            first = second;
+            second = other(first);
+            hedge = false;
+        }
+        if (!hedge) learnedPlans.increment();
+        return new Plan(first, second, hedge);
+    }
+
+    void succeeded(String host, Variant v) {
+        learned.put(host, new Knowledge(v, System.currentTimeMillis()));
+        failingUntil.remove(key(host, v));
+    }
+
+    void failed(String host, Variant v) {
+        failingUntil.put(key(host, v), System.currentTimeMillis() + NEGATIVE_TTL_MILLIS);
+        learned.computeIfPresent(host, (h, k) -> k.winner() == v ? null : k);
+    }
+
+    void hedged() { hedges.increment(); }
+    void fellBack() { fallbacks.increment(); }
+
+    private boolean failing(String host, Variant v, long now) {
+        Long until = failingUntil.get(key(host, v));
+        return until != null && until > now;
+    }
+
+    private static Variant other(Variant v) {
+        return v == Variant.PRIMARY ? Variant.STORED : Variant.PRIMARY;
+    }
+
+    private static String key(String host, Variant v) {
+        return host + "|" + v;
+    }
+}
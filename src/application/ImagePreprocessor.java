@@ -0,0 +1,352 @@
+package application;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Prepara un'immagine prima dell'upload: la riduce al lato massimo indicato e la
+ * ricodifica senza metadati (EXIF, GPS, XMP): PNG senza perdita per screenshot
+ * e immagini con trasparenza, JPEG alla qualità indicata per le foto.
+ * L'orientamento EXIF viene applicato ai pixel, così le foto in verticale restano dritte;
+ * i colori passano a sRGB tramite il profilo ICC incorporato.
+ * Il file caricato è sempre senza metadati: se l'immagine non va ridotta e la ricodifica
+ * non è più piccola, si usa l'originale con i soli segmenti/chunk di metadati tolti (senza perdita),
+ * tenendo il profilo ICC e, se serve, un EXIF minimo con il solo orientamento.
+ * Solo i formati che ImageIO non legge (es. webp) vengono caricati così come sono.
+ * Bloccante: da chiamare fuori dal thread FX.
+ */
+public final class ImagePreprocessor {
+
+    public record Options(int maxEdge, float jpegQuality) {
+        public static final Options DEFAULT = new Options(2560, 0.85f);
+    }
+
+    /** File da caricare e dimensioni prima/dopo; stripped = false se il file è l'originale, metadati inclusi. */
+    public record Result(File file, long originalBytes, long bytes, boolean stripped) {
+        public long savedBytes() {
+            return Math.max(0, originalBytes - bytes);
+        }
+
+        /** Testo per la UI, es. "2,4 MB → 410 KB (-83%)". */
+        public String summary() {
+            if (!stripped) return "Formato non ottimizzabile: invio l'originale, metadati inclusi (" + size(bytes) + ")";
+            if (savedBytes() == 0) return "Immagine già ottimizzata, metadati rimossi (" + size(bytes) + ")";
+            long pct = Math.round(100.0 * savedBytes() / originalBytes);
+            return size(originalBytes) + " → " + size(bytes) + " (-" + pct + "%)";
+        }
+
+        private static String size(long b) {
+            if (b < 1024) return b + " B";
+            if (b < 1024 * 1024) return String.format("%.0f KB", b / 1024.0);
+            return String.format("%.1f MB", b / (1024.0 * 1024.0));
+        }
+    }
+
+    private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    /** Chunk PNG che servono a disegnare l'immagine; tutti gli altri (testo, eXIf, tIME...) vengono tolti. */
+    private static final Set<String> PNG_KEEP = Set.of("IHDR", "PLTE", "IDAT", "IEND", "tRNS", "gAMA", "cHRM", "sRGB", "iCCP");
+    /** L'EXIF di una foto da telefono sta nei primi KB: per l'orientamento basta l'inizio del file. */
+    private static final int EXIF_HEAD_BYTES = 256 * 1024;
+    private static final int ORIENTATION_TAG = 0x0112;
+
+    private ImagePreprocessor() {}
+
+    public static Result process(File source, Options options) throws IOException {
+        long originalBytes = Files.size(source.toPath());
+        BufferedImage img = ImageIO.read(source);
+        if (img == null) {
+            // formato che ImageIO non legge (es. webp): si carica com'è
+            return new Result(source, originalBytes, originalBytes, false);
+        }
+
+        boolean photo = isJpeg(source) && !img.getColorModel().hasAlpha();
+        int orientation = photo ? jpegOrientation(head(source.toPath())) : 1;
+        BufferedImage scaled = downscale(orient(img, orientation, photo), options.maxEdge(), photo);
+
+        String base = source.getName().replaceFirst("\\.[^.]+$", "");
+        Path dir = tempDir();
+        Path out = dir.resolve(base + (photo ? ".jpg" : ".png"));
+        out.toFile().deleteOnExit();
+        if (photo) {
+            writeJpeg(scaled, out, options.jpegQuality());
+        } else {
+            ImageIO.write(scaled, "png", out.toFile());
+        }
+
+        long bytes = Files.size(out);
+        boolean resized = Math.max(img.getWidth(), img.getHeight()) > options.maxEdge();
+        if (bytes >= originalBytes && !resized) {
+            // ricodifica più grande (tipico di un JPEG già compresso): originale senza metadati
+            Path lossless = dir.resolve(base + "-lossless.tmp");
+            lossless.toFile().deleteOnExit();
+            if (stripLossless(source.toPath(), lossless) && Files.size(lossless) < bytes) {
+                Path same = dir.resolve(source.getName());
+                same.toFile().deleteOnExit();
+                Files.deleteIfExists(out);
+                Files.move(lossless, same);
+                return new Result(same.toFile(), originalBytes, Files.size(same), true);
+            }
+            Files.deleteIfExists(lossless);
+        }
+        return new Result(out.toFile(), originalBytes, bytes, true);
+    }
+
+    /**
+     * Ripiego quando process fallisce: la stessa immagine con i soli metadati tolti, senza ricodifica.
+     * IOException se il formato non lo permette: meglio non caricarla che caricarla con i metadati.
+     */
+    public static Result stripOnly(File source) throws IOException {
+        long originalBytes = Files.size(source.toPath());
+        Path out = tempDir().resolve(source.getName());
+        out.toFile().deleteOnExit();
+        if (!stripLossless(source.toPath(), out)) {
+            throw new IOException("Impossibile togliere i metadati da " + source.getName() + ", immagine non inviata");
+        }
+        return new Result(out.toFile(), originalBytes, Files.size(out), true);
+    }
+
+    private static Path tempDir() throws IOException {
+        Path dir = Files.createTempDirectory("bugboard-upload-");
+        // deleteOnExit cancella in ordine inverso: prima i file, poi la cartella
+        dir.toFile().deleteOnExit();
+        return dir;
+    }
+
+    /**
+     * Copia source in out togliendo i metadati senza ricodificare: nei JPEG i segmenti APP1 (EXIF
+     * con GPS, XMP), APP13 (IPTC) e i commenti, nei PNG i chunk accessori non necessari al rendering.
+     * Restano profilo ICC (APP2/iCCP) e segmento Adobe (APP14), che cambiano i colori; un orientamento
+     * diverso da 1 viene riscritto in un EXIF minimo che contiene solo quello.
+     * false se il formato non è tra questi o il file non è ben formato.
+     */
+    static boolean stripLossless(Path source, Path out) throws IOException {
+        byte[] in = Files.readAllBytes(source);
+        ByteArrayOutputStream dst = new ByteArrayOutputStream(in.length);
+        boolean ok;
+        if (in.length > 4 && (in[0] & 0xFF) == 0xFF && (in[1] & 0xFF) == 0xD8) {
+            ok = stripJpeg(in, dst);
+        } else if (in.length > 8 && Arrays.equals(Arrays.copyOf(in, 8), PNG_SIGNATURE)) {
+            ok = stripPng(in, dst);
+        } else {
+            ok = false;
+        }
+        if (ok) Files.write(out, dst.toByteArray());
+        return ok;
+    }
+
+    private static boolean stripJpeg(byte[] in, ByteArrayOutputStream dst) {
+        int orientation = jpegOrientation(in);
+        dst.write(in, 0, 2);
+        int pos = 2;
+        while (pos + 4 <= in.length) {
+            if ((in[pos] & 0xFF) != 0xFF) return false;
+            int marker = in[pos + 1] & 0xFF;
+            if (marker == 0xFF) {
+                pos++; // byte di riempimento
+                continue;
+            }
+            if (marker == 0xDA) {
+                // inizio dei dati compressi: il resto si copia così com'è
+                dst.write(in, pos, in.length - pos);
+                return true;
+            }
+            int len = ((in[pos + 2] & 0xFF) << 8) | (in[pos + 3] & 0xFF);
+            if (len < 2 || pos + 2 + len > in.length) return false;
+            boolean metadata = marker == 0xE1 || marker == 0xED || marker == 0xFE;
+            if (!metadata) {
+                dst.write(in, pos, 2 + len);
+            } else if (orientation != 1 && marker == 0xE1) {
+                // al posto del primo APP1: un EXIF con il solo orientamento
+                dst.writeBytes(orientationExif(orientation));
+                orientation = 1;
+            }
+            pos += 2 + len;
+        }
+        return false;
+    }
+
+    /** Segmento APP1 con un solo tag (Orientation), big-endian. */
+    private static byte[] orientationExif(int orientation) {
+        return new byte[] {
+                (byte) 0xFF, (byte) 0xE1, 0, 34,
+                'E', 'x', 'i', 'f', 0, 0,
+                'M', 'M', 0, 42, 0, 0, 0, 8,            // header TIFF, IFD0 subito dopo
+                0, 1,                                   // una voce
+                0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, (byte) orientation, 0, 0,
+                0, 0, 0, 0                              // nessun IFD successivo
+        };
+    }
+
+    private static byte[] head(Path file) throws IOException {
+        try (var in = Files.newInputStream(file)) {
+            return in.readNBytes(EXIF_HEAD_BYTES);
+        }
+    }
+
+    /** Tag Orientation (1..8) dall'EXIF di un JPEG; 1 se manca o non si legge. */
+    static int jpegOrientation(byte[] in) {
+        if (in.length < 4 || (in[0] & 0xFF) != 0xFF || (in[1] & 0xFF) != 0xD8) return 1;
+        int pos = 2;
+        while (pos + 4 <= in.length) {
+            if ((in[pos] & 0xFF) != 0xFF) return 1;
+            int marker = in[pos + 1] & 0xFF;
+            if (marker == 0xFF) {
+                pos++;
+                continue;
+            }
+            if (marker == 0xDA || marker == 0xD9) return 1;
+            int len = u16(in, pos + 2, true);
+            if (len < 2) return 1;
+            int end = Math.min(in.length, pos + 2 + len);
+            if (marker == 0xE1 && pos + 10 <= end
+                    && new String(in, pos + 4, 6, StandardCharsets.ISO_8859_1).equals("Exif\0\0")) {
+                return tiffOrientation(in, pos + 10, end);
+            }
+            pos += 2 + len;
+        }
+        return 1;
+    }
+
+    private static int tiffOrientation(byte[] in, int tiff, int end) {
+        if (tiff + 8 > end) return 1;
+        boolean big = in[tiff] == 'M' && in[tiff + 1] == 'M';
+        if (!big && !(in[tiff] == 'I' && in[tiff + 1] == 'I')) return 1;
+        long ifd = tiff + u32(in, tiff + 4, big);
+        if (ifd + 2 > end) return 1;
+        int entries = u16(in, (int) ifd, big);
+        for (int i = 0; i < entries; i++) {
+            int e = (int) ifd + 2 + 12 * i;
+            if (e + 12 > end) return 1;
+            if (u16(in, e, big) == ORIENTATION_TAG) {
+                int v = u16(in, e + 8, big);
+                return v >= 1 && v <= 8 ? v : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static int u16(byte[] b, int i, boolean big) {
+        return big ? ((b[i] & 0xFF) << 8) | (b[i + 1] & 0xFF) : ((b[i + 1] & 0xFF) << 8) | (b[i] & 0xFF);
+    }
+
+    private static long u32(byte[] b, int i, boolean big) {
+        return big ? ((long) u16(b, i, true) << 16) | u16(b, i + 2, true)
+                : ((long) u16(b, i + 2, false) << 16) | u16(b, i, false);
+    }
+
+    /**
+     * Applica ai pixel l'orientamento EXIF (2..8: specchiature e rotazioni di 90°),
+     * dato che ImageIO lo ignora e il file ricodificato non ha più l'EXIF.
+     */
+    private static BufferedImage orient(BufferedImage img, int orientation, boolean opaque) {
+        if (orientation <= 1 || orientation > 8) return img;
+        int w = img.getWidth(), h = img.getHeight();
+        boolean swap = orientation >= 5;
+        int dw = swap ? h : w, dh = swap ? w : h;
+        int[] src = img.getRGB(0, 0, w, h, null, 0, w);
+        int[] dst = new int[src.length];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int tx, ty;
+                switch (orientation) {
+                    case 2 -> { tx = w - 1 - x; ty = y; }
+                    case 3 -> { tx = w - 1 - x; ty = h - 1 - y; }
+                    case 4 -> { tx = x; ty = h - 1 - y; }
+                    case 5 -> { tx = y; ty = x; }
+                    case 6 -> { tx = h - 1 - y; ty = x; }
+                    case 7 -> { tx = h - 1 - y; ty = w - 1 - x; }
+                    default -> { tx = y; ty = w - 1 - x; }
+                }
+                dst[ty * dw + tx] = src[y * w + x];
+            }
+        }
+        BufferedImage out = new BufferedImage(dw, dh, opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        out.setRGB(0, 0, dw, dh, dst, 0, dw);
+        return out;
+    }
+
+    private static boolean stripPng(byte[] in, ByteArrayOutputStream dst) {
+        dst.write(in, 0, 8);
+        int pos = 8;
+        while (pos + 12 <= in.length) {
+            long len = ((in[pos] & 0xFFL) << 24) | ((in[pos + 1] & 0xFF) << 16) | ((in[pos + 2] & 0xFF) << 8) | (in[pos + 3] & 0xFF);
+            if (len > in.length - pos - 12) return false;
+            String type = new String(in, pos + 4, 4, StandardCharsets.US_ASCII);
+            int size = 12 + (int) len;
+            if (PNG_KEEP.contains(type)) dst.write(in, pos, size);
+            pos += size;
+            if (type.equals("IEND")) return true;
+        }
+        return false;
+    }
+
+    /** Riduce a metà finché serve (qualità migliore di un solo passo bilineare), poi alla misura esatta. */
+    private static BufferedImage downscale(BufferedImage img, int maxEdge, boolean opaque) {
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        int w = img.getWidth(), h = img.getHeight();
+        int edge = Math.max(w, h);
+        if (edge <= maxEdge) {
+            return img.getType() == type ? img : redraw(img, w, h, type);
+        }
+        double scale = (double) maxEdge / edge;
+        int targetW = Math.max(1, (int) Math.round(w * scale));
+        int targetH = Math.max(1, (int) Math.round(h * scale));
+
+        BufferedImage cur = img;
+        while (cur.getWidth() / 2 >= targetW && cur.getHeight() / 2 >= targetH) {
+            cur = redraw(cur, cur.getWidth() / 2, cur.getHeight() / 2, type);
+        }
+        return redraw(cur, targetW, targetH, type);
+    }
+
+    private static BufferedImage redraw(BufferedImage src, int w, int h, int type) {
+        BufferedImage dst = new BufferedImage(w, h, type);
+        Graphics2D g = dst.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(src, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
+        }
+        return dst;
+    }
+
+    /** JPEG con qualità esplicita; nessun metadato originale viene copiato. */
+    private static void writeJpeg(BufferedImage img, Path out, float quality) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) throw new IOException("Encoder JPEG non disponibile");
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out.toFile())) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(img, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static boolean isJpeg(File f) {
+        String n = f.getName().toLowerCase(Locale.ROOT);
+        return n.endsWith(".jpg") || n.endsWith(".jpeg");
+    }
+}
@@ -2,19 +2,38 @@ package application;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.net.URLEncoder;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -32,9 +51,39 @@ public class IssueApi {
         public ForbiddenException(String body) { super(body == null || body.isBlank() ? "Accesso negato (403)" : body); }
     }
 
-    private static final HttpClient CLIENT = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(5))
-            .build();
+    /** Il backend non espone l'endpoint dei delta: serve un caricamento completo. */
+    public static class DeltaNotSupportedException extends RuntimeException {
+        public DeltaNotSupportedException(int code) { super("Delta sync non supportato (HTTP " + code + ")"); }
+    }
+
+    /** Il backend non ha il protocollo di upload a blocchi: si usa il multipart. */
+    public static class ResumableNotSupportedException extends RuntimeException {
+        public ResumableNotSupportedException(int code) { super("Upload a blocchi non supportato (HTTP " + code + ")"); }
+    }
+
+    /** L'endpoint immagine ha risposto ma senza un'immagine (4xx o body di altro tipo): quella variante non va. */
+    public static class NotAnImageException extends RuntimeException {
+        public NotAnImageException(String message) { super(message); }
+    }
+
+    /** Sopra questa dimensione l'immagine va a blocchi (se il backend li supporta). */
+    private static final long RESUMABLE_THRESHOLD = 1024 * 1024;
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    /** Errori consecutivi senza che l'offset confermato avanzi, poi si rinuncia. */
+    private static final int CHUNK_MAX_RETRIES = 6;
+    private static final long CHUNK_RETRY_BASE_MILLIS = 500;
+    private static final long CHUNK_RETRY_MAX_MILLIS = 15_000;
+
+    /** Diventa true al primo 404/405/501 sulla creazione della sessione: da lì solo multipart. */
+    private static volatile boolean resumableUnsupported;
+
+    /** Variante dell'URL delle immagini che risponde, per host. */
+    private static final ImageEndpoints IMAGE_ENDPOINTS = new ImageEndpoints();
+    /** Senza conoscenza recente, dopo quanto parte in parallelo la seconda variante. */
+    private static final long IMAGE_HEDGE_DELAY_MILLIS = 300;
+
+    private static final HttpTransport.ErrorMapping ERRORS = new HttpTransport.ErrorMapping(
+            UnauthorizedException::new, ForbiddenException::new, null);
 
     private static final ObjectMapper MAPPER = new ObjectMapper()
             .registerModule(new JavaTimeModule());
@@ -80,9 +129,19 @@ public class IssueApi {
      * GET /bugboard/issue/view?sort=...
      */
     public static List<IssueItem> getIssues(String sort) throws Exception {
-        String url = ApiConfig.BASE_URL + "/bugboard/issue/view?sort=" +
-                URLEncoder.encode(sort, StandardCharsets.UTF_8);
+        return HttpTransport.sendShared(getIssuesRequest(sort), stringBody(), IssueApi::readIssues, true);
+    }
+
+    public static CompletableFuture<List<IssueItem>> getIssuesAsync(String sort) {
+        return HttpTransport.sendSharedAsync(() -> getIssuesRequest(sort), stringBody(), IssueApi::readIssues, true);
+    }
+
+    private static HttpRequest getIssuesRequest(String sort) {
+        return issuesRequest(ApiConfig.BASE_URL + "/bugboard/issue/view?sort=" +
+                URLEncoder.encode(sort, StandardCharsets.UTF_8));
+    }
 
+    private static HttpRequest issuesRequest(String url) {
         HttpRequest.Builder b = HttpRequest.newBuilder()
                 .uri(URI.create(url))
                 .timeout(Duration.ofSeconds(12))
@@ -93,23 +152,175 @@ public class IssueApi {
 
         HttpRequest req = b.build();
         debugRequest(req);
+        return req;
+    }
+
+    /**
+     * GET /bugboard/issue/view?sort=... in streaming.
+     * L'array JSON viene letto un elemento alla volta dall'InputStream e consegnato
+     * a blocchi di batchSize: niente stringa con tutta la risposta in memoria.
+     * onBatch viene chiamato dal thread che esegue la richiesta.
+     */
+    public static void streamIssues(String sort, int batchSize, Consumer<List<IssueItem>> onBatch) throws Exception {
+        HttpResponse<InputStream> resp = HttpTransport.sendHedged(
+                getIssuesRequest(sort),
+                HttpResponse.BodyHandlers.ofInputStream()
+        );
+
+        try (InputStream in = resp.body()) {
+            if (resp.statusCode() != 200) {
+                String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                throw HttpTransport.errorFor(resp.statusCode(), body, ERRORS);
+            }
+            readIssueArray(in, batchSize, onBatch);
+        }
+    }
+
+    /** Una pagina della lista issue; nextCursor == null se non ci sono altre pagine. */
+    public record IssuePage(List<IssueItem> items, String nextCursor) {}
 
-        HttpResponse<String> resp = CLIENT.send(
-                req,
-                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)
+    /**
+     * GET /bugboard/issue/view?sort=...&size=...&cursor=...
+     * Risposta attesa: {"items": [...], "nextCursor": "..."}.
+     * Un backend senza paginazione risponde con l'array completo: in quel caso
+     * la prima pagina contiene tutto e nextCursor è null.
+     */
+    public static IssuePage getIssuesPage(String sort, String cursor, int pageSize) throws Exception {
+        List<IssueItem> items = new ArrayList<>();
+        String next = streamIssuesPage(sort, cursor, pageSize, pageSize, items::addAll);
+        return new IssuePage(items, next);
+    }
+
+    /**
+     * Come {@link #getIssuesPage}, ma consegna le issue a blocchi mentre arrivano.
+     * Ritorna il cursore della pagina successiva (null = fine lista).
+     */
+    public static String streamIssuesPage(String sort,
+                                          String cursor,
+                                          int pageSize,
+                                          int batchSize,
+                                          Consumer<List<IssueItem>> onBatch) throws Exception {
+        String url = ApiConfig.BASE_URL + "/bugboard/issue/view?sort=" +
+                URLEncoder.encode(sort, StandardCharsets.UTF_8) +
+                "&size=" + pageSize;
+        if (cursor != null && !cursor.isBlank()) {
+            url += "&cursor=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8);
+        }
+
+        HttpResponse<InputStream> resp = HttpTransport.sendHedged(
+                issuesRequest(url),
+                HttpResponse.BodyHandlers.ofInputStream()
         );
+
+        try (InputStream in = resp.body()) {
+            if (resp.statusCode() != 200) {
+                String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                throw HttpTransport.errorFor(resp.statusCode(), body, ERRORS);
+            }
+            return readIssuePage(in, batchSize, onBatch);
+        }
+    }
+
+    private static void readIssueArray(InputStream in, int batchSize, Consumer<List<IssueItem>> onBatch)
+            throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Risposta non valida: atteso un array di issue");
+            }
+            readIssueElements(parser, batchSize, onBatch);
+        }
+    }
+
+    private static String readIssuePage(InputStream in, int batchSize, Consumer<List<IssueItem>> onBatch)
+            throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(in)) {
+            JsonToken first = parser.nextToken();
+            if (first == JsonToken.START_ARRAY) {
+                readIssueElements(parser, batchSize, onBatch);
+                return null;
+            }
+            if (first != JsonToken.START_OBJECT) {
+                throw new IOException("Risposta non valida: attesa una pagina di issue");
+            }
+
+            String next = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("items".equals(field) && value == JsonToken.START_ARRAY) {
+                    readIssueElements(parser, batchSize, onBatch);
+                } else if ("nextCursor".equals(field)) {
+                    next = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return next == null || next.isBlank() ? null : next;
+        }
+    }
+
+    /** Legge gli elementi dell'array corrente (parser posizionato su START_ARRAY). */
+    private static void readIssueElements(JsonParser parser, int batchSize, Consumer<List<IssueItem>> onBatch)
+            throws IOException {
+        List<IssueItem> batch = new ArrayList<>(batchSize);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            batch.add(MAPPER.readValue(parser, IssueItem.class));
+            if (batch.size() >= batchSize) {
+                onBatch.accept(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Caricamento issue annullato");
+            }
+        }
+        if (!batch.isEmpty()) {
+            onBatch.accept(batch);
+        }
+    }
+
+    private static List<IssueItem> readIssues(HttpResponse<String> resp) throws IOException {
         debugResponse(resp);
 
         if (resp.statusCode() == 200) {
-            return MAPPER.readValue(resp.body(), new TypeReference<List<IssueItem>>() {});
+            // può essere condivisa tra più chiamanti (SingleFlight): in sola lettura
+            return Collections.unmodifiableList(MAPPER.readValue(resp.body(), new TypeReference<List<IssueItem>>() {}));
         }
-        if (resp.statusCode() == 401) {
-            throw new UnauthorizedException(resp.statusCode(), resp.body());
+        throw HttpTransport.errorFor(resp.statusCode(), resp.body(), ERRORS);
+    }
+
+    /** Issue cambiate dopo un certo istante e id delle issue cancellate (tombstone). */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record IssueDelta(List<IssueItem> changed, List<Long> deleted) {
+        public IssueDelta {
+            changed = changed == null ? List.of() : Collections.unmodifiableList(changed);
+            deleted = deleted == null ? List.of() : Collections.unmodifiableList(deleted);
         }
-        if (resp.statusCode() == 403) {
-            throw new ForbiddenException(resp.body());
+    }
+
+    /**
+     * GET /bugboard/issue/view/changes?since=...
+     * Risposta: {"changed": [...], "deleted": [id, ...]}.
+     * Lancia DeltaNotSupportedException se il backend non ha l'endpoint.
+     */
+    public static IssueDelta getIssuesChangedSince(LocalDateTime since) throws Exception {
+        if (since == null) {
+            throw new IllegalArgumentException("since mancante");
         }
-        throw new RuntimeException("HTTP " + resp.statusCode() + " - " + resp.body());
+        String url = ApiConfig.BASE_URL + "/bugboard/issue/view/changes?since=" +
+                URLEncoder.encode(since.toString(), StandardCharsets.UTF_8);
+
+        return HttpTransport.sendShared(issuesRequest(url), stringBody(), resp -> {
+            debugResponse(resp);
+
+            int code = resp.statusCode();
+            if (code == 200) {
+                return MAPPER.readValue(resp.body(), IssueDelta.class);
+            }
+            if (code == 404 || code == 405 || code == 501) {
+                throw new DeltaNotSupportedException(code);
+            }
+            throw HttpTransport.errorFor(code, resp.body(), ERRORS);
+        }, true);
     }
 
     /**
@@ -120,7 +331,28 @@ public class IssueApi {
                                    String description,
                                    String type,
                                    String priorityOrNull) throws Exception {
+        return HttpTransport.send(
+                createIssueRequest(title, description, type, priorityOrNull),
+                stringBody(),
+                IssueApi::readCreatedIssue
+        );
+    }
 
+    public static CompletableFuture<Long> createIssueAsync(String title,
+                                                           String description,
+                                                           String type,
+                                                           String priorityOrNull) {
+        return HttpTransport.sendAsync(
+                () -> createIssueRequest(title, description, type, priorityOrNull),
+                stringBody(),
+                IssueApi::readCreatedIssue
+        );
+    }
+
+    private static HttpRequest createIssueRequest(String title,
+                                                  String description,
+                                                  String type,
+                                                  String priorityOrNull) throws IOException {
         String url = ApiConfig.BASE_URL + "/bugboard/issue/new";
 
         Map<String, Object> payload = new LinkedHashMap<>();
@@ -145,11 +377,10 @@ public class IssueApi {
 
         HttpRequest req = b.build();
         debugRequest(req);
+        return req;
+    }
 
-        HttpResponse<String> resp = CLIENT.send(
-                req,
-                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)
-        );
+    private static Long readCreatedIssue(HttpResponse<String> resp) throws IOException {
         debugResponse(resp);
 
         if (resp.statusCode() == 201 || resp.statusCode() == 200) {
@@ -159,14 +390,8 @@ public class IssueApi {
             }
             return id;
         }
-        if (resp.statusCode() == 401) {
-            throw new UnauthorizedException(resp.statusCode(), resp.body());
-        }
-        if (resp.statusCode() == 403) {
-            throw new ForbiddenException(resp.body());
-        }
 
-        throw new RuntimeException("HTTP " + resp.statusCode() + " - " + resp.body());
+        throw HttpTransport.errorFor(resp.statusCode(), resp.body(), ERRORS);
     }
 
     /**
@@ -179,6 +404,32 @@ public class IssueApi {
                                    String type,
                                    String priorityOrNull,
                                    String stateOrNull) throws Exception {
+        HttpTransport.send(
+                modifyIssueRequest(id, title, description, type, priorityOrNull, stateOrNull),
+                stringBody(),
+                IssueApi::readModified
+        );
+    }
+
+    public static CompletableFuture<Void> modifyIssueAsync(Long id,
+                                                           String title,
+                                                           String description,
+                                                           String type,
+                                                           String priorityOrNull,
+                                                           String stateOrNull) {
+        return HttpTransport.sendAsync(
+                () -> modifyIssueRequest(id, title, description, type, priorityOrNull, stateOrNull),
+                stringBody(),
+                IssueApi::readModified
+        );
+    }
+
+    private static HttpRequest modifyIssueRequest(Long id,
+                                                  String title,
+                                                  String description,
+                                                  String type,
+                                                  String priorityOrNull,
+                                                  String stateOrNull) throws IOException {
         if (id == null) {
             throw new IllegalArgumentException("id mancante");
         }
@@ -215,24 +466,14 @@ public class IssueApi {
 
         HttpRequest req = b.build();
         debugRequest(req);
+        return req;
+    }
 
-        HttpResponse<String> resp = CLIENT.send(
-                req,
-                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)
-        );
+    private static Void readModified(HttpResponse<String> resp) {
         debugResponse(resp);
 
-        if (resp.statusCode() == 200) {
-            return;
-        }
-        if (resp.statusCode() == 401) {
-            throw new UnauthorizedException(resp.statusCode(), resp.body());
-        }
-        if (resp.statusCode() == 403) {
-            throw new ForbiddenException(resp.body());
-        }
-
-        throw new RuntimeException("HTTP " + resp.statusCode() + " - " + resp.body());
+        HttpTransport.checkStatus(resp.statusCode(), resp.body(), ERRORS, 200);
+        return null;
     }
 
     /**
@@ -240,6 +481,212 @@ public class IssueApi {
      * Multipart: {file}
      */
     public static String uploadIssueImage(Long issueId, File file) throws Exception {
+        return uploadIssueImage(issueId, file, null);
+    }
+
+    /**
+     * Upload in streaming dal disco; progress (facoltativo) riceve i byte inviati.
+     * I file sopra RESUMABLE_THRESHOLD vanno a blocchi e riprendono da dove si erano fermati
+     * se la rete cade; se il backend non ha il protocollo si torna al multipart.
+     */
+    public static String uploadIssueImage(Long issueId, File file, HttpTransport.Progress progress) throws Exception {
+        if (useResumable(file)) {
+            try {
+                return uploadResumable(issueId, file, progress);
+            } catch (ResumableNotSupportedException ex) {
+                System.out.println("Upload a blocchi non supportato: " + ex.getMessage() + ", uso multipart");
+            }
+        }
+        return HttpTransport.send(uploadIssueImageRequest(issueId, file, progress), stringBody(), IssueApi::readUploaded);
+    }
+
+    public static CompletableFuture<String> uploadIssueImageAsync(Long issueId, File file) {
+        return uploadIssueImageAsync(issueId, file, null);
+    }
+
+    public static CompletableFuture<String> uploadIssueImageAsync(Long issueId, File file, HttpTransport.Progress progress) {
+        if (useResumable(file)) {
+            // più richieste in sequenza con attese tra i tentativi: thread virtuale dedicato
+            return HttpTransport.supplyBlocking(() -> uploadIssueImage(issueId, file, progress));
+        }
+        return HttpTransport.sendAsync(() -> uploadIssueImageRequest(issueId, file, progress), stringBody(), IssueApi::readUploaded);
+    }
+
+    // ---- upload a blocchi riprendibile
+
+    /** Stato di una sessione di upload come la restituisce il backend. */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private record UploadState(String uploadId, long offset, String path) {}
+
+    private static boolean useResumable(File file) {
+        return !resumableUnsupported && file != null && file.length() > RESUMABLE_THRESHOLD;
+    }
+
+    /**
+     * Protocollo:
+     *  POST /bugboard/issue/{id}/image/uploads  {filename, contentType, size} -> {uploadId, offset}
+     *  PUT  .../uploads/{uploadId}  Content-Range: bytes a-b/totale, body = i byte del blocco
+     *       -> {offset} finché manca qualcosa, {path} dopo l'ultimo blocco;
+     *          409 = offset non allineato, il body porta quello che il server ha davvero
+     *  GET  .../uploads/{uploadId} -> {offset} (o {path} se l'upload è già completo)
+     * Dopo un errore di rete o un 5xx si chiede al server l'offset confermato e si riparte
+     * da lì con attese crescenti: i byte già arrivati non vengono rispediti.
+     * Anche un blocco accettato senza che l'offset confermato avanzi conta come errore:
+     * oltre CHUNK_MAX_RETRIES tentativi senza progressi l'upload fallisce.
+     * Il file viene letto un blocco alla volta, la memoria usata non dipende dalla sua dimensione.
+     */
+    private static String uploadResumable(Long issueId, File file, HttpTransport.Progress progress) throws Exception {
+        if (issueId == null) {
+            throw new IllegalArgumentException("issueId mancante");
+        }
+        validateImageFile(file);
+
+        long total = file.length();
+        String base = ApiConfig.BASE_URL + "/bugboard/issue/" + issueId + "/image/uploads";
+        UploadState session = startUpload(base, file, total);
+        if (session.uploadId() == null || session.uploadId().isBlank()) {
+            throw new IOException("Sessione di upload senza uploadId");
+        }
+        String sessionUrl = base + "/" + URLEncoder.encode(session.uploadId(), StandardCharsets.UTF_8);
+
+        long offset = session.offset();
+        long confirmed = offset;
+        int failures = 0;
+        boolean resync = false;
+        byte[] chunk = new byte[CHUNK_SIZE];
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (true) {
+                try {
+                    boolean sent = !resync && offset < total;
+                    UploadState ack = sent
+                            ? sendChunk(sessionUrl, channel, chunk, offset, total, progress)
+                            : uploadStatus(sessionUrl);
+                    resync = false;
+
+                    if (ack.path() != null) {
+                        if (progress != null) progress.sent(total, total);
+                        return ack.path();
+                    }
+                    if (offset >= total && ack.offset() >= total) {
+                        throw new IOException("Upload completo ma il server non ha restituito il path");
+                    }
+                    long acked = Math.max(0, Math.min(ack.offset(), total));
+                    if (acked > confirmed) {
+                        confirmed = acked;
+                        failures = 0;
+                    } else if (sent) {
+                        // 200 o 409 che non spostano l'offset: senza limite si rispedirebbe lo stesso blocco all'infinito
+                        offset = acked;
+                        throw new IOException("nessun avanzamento oltre " + acked);
+                    }
+                    offset = acked;
+                } catch (IOException ex) {
+                    if (ex instanceof InterruptedIOException || ++failures > CHUNK_MAX_RETRIES) throw ex;
+                    long wait = Math.min(CHUNK_RETRY_MAX_MILLIS, CHUNK_RETRY_BASE_MILLIS << (failures - 1));
+                    System.out.println("Upload: errore a " + offset + "/" + total + " (" + ex.getMessage()
+                            + "), riprendo tra " + wait + " ms");
+                    Thread.sleep(wait);
+                    resync = true;
+                }
+            }
+        }
+    }
+
+    private static UploadState startUpload(String url, File file, long total) throws Exception {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("filename", file.getName());
+        payload.put("contentType", contentTypeForImage(file));
+        payload.put("size", total);
+
+        HttpRequest.Builder b = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(Duration.ofSeconds(15))
+                .header("Content-Type", "application/json; charset=utf-8")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(payload), StandardCharsets.UTF_8));
+
+        addAuth(b);
+
+        HttpRequest req = b.build();
+        debugRequest(req);
+        return HttpTransport.send(req, stringBody(), resp -> {
+            debugResponse(resp);
+
+            int code = resp.statusCode();
+            if (code == 200 || code == 201) {
+                return MAPPER.readValue(resp.body(), UploadState.class);
+            }
+            if (code == 404 || code == 405 || code == 501) {
+                resumableUnsupported = true;
+                throw new ResumableNotSupportedException(code);
+            }
+            throw HttpTransport.errorFor(code, resp.body(), ERRORS);
+        });
+    }
+
+    /** Legge dal disco il blocco che parte da offset e lo invia con il suo Content-Range. */
+    private static UploadState sendChunk(String url, FileChannel channel, byte[] chunk,
+                                         long offset, long total, HttpTransport.Progress progress) throws Exception {
+        int len = (int) Math.min(chunk.length, total - offset);
+        ByteBuffer buf = ByteBuffer.wrap(chunk, 0, len);
+        long pos = offset;
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, pos);
+            if (n < 0) throw new IllegalStateException("Il file è cambiato durante l'upload");
+            pos += n;
+        }
+
+        HttpTransport.Progress chunkProgress = progress == null ? null
+                : (sent, size) -> progress.sent(offset + sent, total);
+        HttpRequest.Builder b = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/octet-stream")
+                .header("Content-Range", "bytes " + offset + "-" + (offset + len - 1) + "/" + total)
+                .header("Accept", "application/json")
+                .PUT(HttpTransport.withProgress(HttpRequest.BodyPublishers.ofByteArray(chunk, 0, len), chunkProgress));
+
+        addAuth(b);
+
+        HttpRequest req = b.build();
+        debugRequest(req);
+        return HttpTransport.send(req, stringBody(), IssueApi::readUploadState);
+    }
+
+    private static UploadState uploadStatus(String url) throws Exception {
+        HttpRequest.Builder b = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(Duration.ofSeconds(15))
+                .header("Accept", "application/json")
+                .header("Cache-Control", "no-cache")
+                .GET();
+
+        addAuth(b);
+
+        HttpRequest req = b.build();
+        debugRequest(req);
+        return HttpTransport.send(req, stringBody(), IssueApi::readUploadState);
+    }
+
+    /** 5xx = temporaneo (IOException: si riprende dall'offset confermato), gli altri errori sono definitivi. */
+    private static UploadState readUploadState(HttpResponse<String> resp) throws IOException {
+        debugResponse(resp);
+
+        int code = resp.statusCode();
+        if (code == 200 || code == 201 || code == 202 || code == 409) {
+            if (resp.body() == null || resp.body().isBlank()) {
+                throw new IOException("HTTP " + code + " senza stato dell'upload");
+            }
+            return MAPPER.readValue(resp.body(), UploadState.class);
+        }
+        if (code >= 500) {
+            throw new IOException("HTTP " + code);
+        }
+        throw HttpTransport.errorFor(code, resp.body(), ERRORS);
+    }
+
+    private static HttpRequest uploadIssueImageRequest(Long issueId, File file, HttpTransport.Progress progress) throws IOException {
         if (issueId == null) {
             throw new IllegalArgumentException("issueId mancante");
         }
@@ -251,7 +698,7 @@ public class IssueApi {
         String url = ApiConfig.BASE_URL + "/bugboard/issue/" + issueId + "/image";
         String boundary = "BugBoardBoundary" + System.currentTimeMillis();
 
-        HttpRequest.BodyPublisher body = buildMultipartBody(boundary, file);
+        HttpRequest.BodyPublisher body = HttpTransport.withProgress(buildMultipartBody(boundary, file), progress);
 
         HttpRequest.Builder b = HttpRequest.newBuilder()
                 .uri(URI.create(url))
@@ -264,24 +711,21 @@ public class IssueApi {
 
         HttpRequest req = b.build();
         debugRequest(req);
+        return req;
+    }
 
-        HttpResponse<String> resp = CLIENT.send(
-                req,
-                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)
-        );
+    private static String readUploaded(HttpResponse<String> resp) throws IOException {
         debugResponse(resp);
 
         if (resp.statusCode() == 200 || resp.statusCode() == 201) {
             return readImagePath(resp.body());
         }
-        if (resp.statusCode() == 401) {
-            throw new UnauthorizedException(resp.statusCode(), resp.body());
-        }
-        if (resp.statusCode() == 403) {
-            throw new ForbiddenException(resp.body());
-        }
 
-        throw new RuntimeException("HTTP " + resp.statusCode() + " - " + resp.body());
+        throw HttpTransport.errorFor(resp.statusCode(), resp.body(), ERRORS);
+    }
+
+    private static HttpResponse.BodyHandler<String> stringBody() {
+        return HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8);
     }
 
     private static Long readIssueId(String body) throws IOException {
@@ -311,26 +755,38 @@ public class IssueApi {
         return "application/octet-stream";
     }
 
+    /**
+     * Header della parte + file letto dal disco a blocchi + chiusura:
+     * il file non passa mai per intero in memoria e la lunghezza totale è nota (niente chunked).
+     */
     private static HttpRequest.BodyPublisher buildMultipartBody(String boundary, File file) throws IOException {
-        List<byte[]> byteArrays = new ArrayList<>();
         String filename = file.getName();
         String contentType = contentTypeForImage(file);
 
-        byteArrays.add(("--" + boundary + "\r\n").getBytes(StandardCharsets.UTF_8));
-        byteArrays.add(("Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n")
-                .getBytes(StandardCharsets.UTF_8));
-        byteArrays.add(("Content-Type: " + contentType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
-        byteArrays.add(Files.readAllBytes(file.toPath()));
-        byteArrays.add("\r\n".getBytes(StandardCharsets.UTF_8));
-        byteArrays.add(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        String head = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: " + contentType + "\r\n\r\n";
+        String tail = "\r\n--" + boundary + "--\r\n";
 
-        return HttpRequest.BodyPublishers.ofByteArrays(byteArrays);
+        return HttpRequest.BodyPublishers.concat(
+                HttpRequest.BodyPublishers.ofByteArray(head.getBytes(StandardCharsets.UTF_8)),
+                HttpRequest.BodyPublishers.ofFile(file.toPath()),
+                HttpRequest.BodyPublishers.ofByteArray(tail.getBytes(StandardCharsets.UTF_8))
+        );
     }
 
     /**
      * GET image url with Authorization.
      */
     public static byte[] downloadIssueImage(String url) throws Exception {
+        return HttpTransport.sendShared(downloadImageRequest(url), HttpResponse.BodyHandlers.ofByteArray(), IssueApi::readImage, true);
+    }
+
+    public static CompletableFuture<byte[]> downloadIssueImageAsync(String url) {
+        return HttpTransport.sendSharedAsync(() -> downloadImageRequest(url), HttpResponse.BodyHandlers.ofByteArray(), IssueApi::readImage, true);
+    }
+
+    private static HttpRequest downloadImageRequest(String url) {
         if (url == null || url.isBlank()) {
             throw new IllegalArgumentException("URL immagine mancante");
         }
@@ -345,51 +801,125 @@ public class IssueApi {
 
         HttpRequest req = b.build();
         debugRequest(req);
+        return req;
+    }
 
-        HttpResponse<byte[]> resp = CLIENT.send(
-                req,
-                HttpResponse.BodyHandlers.ofByteArray()
-        );
-
-        if (resp.statusCode() == 200) {
+    private static byte[] readImage(HttpResponse<byte[]> resp) {
+        int code = resp.statusCode();
+        if (code == 200) {
+            // es. la pagina HTML di fallback del server o un errore JSON con 200
+            String type = resp.headers().firstValue("Content-Type").orElse("").toLowerCase(Locale.ROOT);
+            if (type.startsWith("text/") || type.contains("json")) {
+                throw new NotAnImageException("Risposta senza immagine (" + type + ")");
+            }
             return resp.body();
         }
-        if (resp.statusCode() == 401) {
-            throw new UnauthorizedException(resp.statusCode(), "");
-        }
-        if (resp.statusCode() == 403) {
-            throw new ForbiddenException("");
+        if (code >= 400 && code < 500 && code != 401 && code != 403) {
+            throw new NotAnImageException("HTTP " + code);
         }
-
-        throw new RuntimeException("HTTP " + resp.statusCode());
+        throw HttpTransport.errorFor(code, "", ERRORS);
     }
 
     /**
-     * Try download from provided URL, then fallback to /bugboard/issue/{id}/image if available.
+     * Scarica l'immagine dell'issue dall'endpoint /bugboard/issue/{id}/image o dal path salvato,
+     * partendo dalla variante che ha funzionato l'ultima volta su questo host (vedi {@link ImageEndpoints}).
+     * Se la prima fallisce si prova l'altra; se non si sa quale funziona, la seconda parte
+     * anche quando la prima tarda più di IMAGE_HEDGE_DELAY_MILLIS, vince la prima risposta e l'altra viene cancellata.
      */
     public static byte[] downloadIssueImageWithFallback(Long issueId, String url) throws Exception {
-        Exception last = null;
-        if (issueId != null) {
-            String primaryUrl = ApiConfig.BASE_URL + "/bugboard/issue/" + issueId + "/image";
-            try {
-                return downloadIssueImage(primaryUrl);
-            } catch (Exception ex) {
-                last = ex;
-            }
+        CompletableFuture<byte[]> f = downloadIssueImageWithFallbackAsync(issueId, url);
+        try {
+            return f.get();
+        } catch (InterruptedException ex) {
+            f.cancel(true);
+            throw ex;
+        } catch (ExecutionException ex) {
+            if (HttpTransport.unwrap(ex) instanceof Exception cause) throw cause;
+            throw ex;
         }
-        if (url != null && !url.isBlank()) {
-            try {
-                return downloadIssueImage(url);
-            } catch (Exception ex) {
-                if (last != null) {
-                    ex.addSuppressed(last);
-                }
-                throw ex;
-            }
+    }
+
+    public static CompletableFuture<byte[]> downloadIssueImageWithFallbackAsync(Long issueId, String url) {
+        boolean hasUrl = url != null && !url.isBlank();
+        if (issueId == null) {
+            return hasUrl
+                    ? downloadIssueImageAsync(url)
+                    : CompletableFuture.failedFuture(new IllegalArgumentException("URL e issueId mancanti"));
         }
-        if (last != null) {
-            throw last;
+
+        String primaryUrl = ApiConfig.BASE_URL + "/bugboard/issue/" + issueId + "/image";
+        if (!hasUrl || url.equals(primaryUrl)) {
+            return downloadIssueImageAsync(primaryUrl);
+        }
+
+        String host = URI.create(ApiConfig.BASE_URL).getHost();
+        ImageEndpoints.Plan plan = IMAGE_ENDPOINTS.plan(host);
+        return downloadFirstOf(host, plan, v -> v == ImageEndpoints.Variant.PRIMARY ? primaryUrl : url);
+    }
+
+    /** Contatori della scelta della variante per le immagini. */
+    public static ImageEndpoints imageEndpoints() {
+        return IMAGE_ENDPOINTS;
+    }
+
+    private static CompletableFuture<byte[]> downloadFirstOf(String host,
+                                                             ImageEndpoints.Plan plan,
+                                                             Function<ImageEndpoints.Variant, String> urlOf) {
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        List<CompletableFuture<byte[]>> attempts = new CopyOnWriteArrayList<>();
+        AtomicInteger failures = new AtomicInteger();
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        AtomicBoolean secondStarted = new AtomicBoolean();
+
+        Consumer<ImageEndpoints.Variant> launch = new Consumer<>() {
+            @Override
+            public void accept(ImageEndpoints.Variant v) {
+                CompletableFuture<byte[]> attempt = downloadIssueImageAsync(urlOf.apply(v));
+                attempts.add(attempt);
+                attempt.whenComplete((data, ex) -> {
+                    if (ex == null) {
+                        IMAGE_ENDPOINTS.succeeded(host, v);
+                        if (result.complete(data)) {
+                            for (CompletableFuture<byte[]> other : attempts) {
+                                if (other != attempt) other.cancel(true);
+                            }
+                        }
+                        return;
+                    }
+                    Throwable cause = HttpTransport.unwrap(ex);
+                    if (cause instanceof CancellationException) return;
+                    // solo una risposta vera dell'endpoint lo scarta; token scaduto, rete, 5xx,
+                    // circuito aperto o interruzione non dicono nulla sulla variante
+                    if (cause instanceof NotAnImageException) {
+                        IMAGE_ENDPOINTS.failed(host, v);
+                    }
+                    if (failures.incrementAndGet() == 2) {
+                        Throwable prev = firstFailure.get();
+                        if (prev != null && prev != cause) cause.addSuppressed(prev);
+                        result.completeExceptionally(cause);
+                    } else {
+                        firstFailure.set(cause);
+                        if (secondStarted.compareAndSet(false, true) && !result.isDone()) {
+                            IMAGE_ENDPOINTS.fellBack();
+                            accept(plan.second());
+                        }
+                    }
+                });
+            }
+        };
+
+        launch.accept(plan.first());
+        if (plan.hedge()) {
+            CompletableFuture.delayedExecutor(IMAGE_HEDGE_DELAY_MILLIS, TimeUnit.MILLISECONDS).execute(() -> {
+                if (!result.isDone() && secondStarted.compareAndSet(false, true)) {
+                    IMAGE_ENDPOINTS.hedged();
+                    launch.accept(plan.second());
+                }
+            });
         }
-        throw new IllegalArgumentException("URL e issueId mancanti");
+        result.whenComplete((data, ex) -> {
+            if (result.isCancelled()) attempts.forEach(a -> a.cancel(true));
+        });
+        return result;
     }
 }
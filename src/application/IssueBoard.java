@@ -0,0 +1,271 @@
+package application;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Issue caricate nella lista, con ordinamento lato client.
+ * Per ogni chiave si calcola una volta la permutazione degli indici (ordinamento
+ * parallelo su chiavi long impacchettate) e la si riusa finché i dati non cambiano:
+ * cambiare ordinamento non richiede rete e costa pochi millisecondi.
+ * Tiene allineati anche l'indice di ricerca testuale e i filtri a faccette.
+ * Da usare dal thread FX, tranne {@link #prepare}: una lista grande si indicizza in background
+ * e si installa poi con {@link #install}.
+ */
+public final class IssueBoard {
+
+    public enum SortKey {
+        CREATED_AT("createdAt"),
+        PRIORITY("priority"),
+        STATE("state");
+
+        private final String api;
+
+        SortKey(String api) {
+            this.api = api;
+        }
+
+        /** Valore del parametro sort= per il backend. */
+        public String api() { return api; }
+    }
+
+    /** Ordine semantico: più urgente prima. */
+    private static final List<String> PRIORITY_ORDER = List.of("HIGH", "MEDIUM", "LOW");
+    /** Ordine semantico del workflow: da fare prima, chiuse in fondo. */
+    private static final List<String> STATE_ORDER = List.of(
+            "TODO", "OPEN", "ASSIGNED", "IN_PROGRESS", "IN_REVIEW", "RESOLVED", "DONE", "CLOSED"
+    );
+
+    // layout della chiave: [primaria 4 bit][secondaria 4 bit][createdAt desc 34 bit][indice 21 bit]
+    private static final int INDEX_BITS = 21;
+    private static final int DATE_BITS = 34;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+    private static final long DATE_MAX = (1L << DATE_BITS) - 1;
+    private static final int RANK_MAX = 15;
+
+    private final List<IssueItem> items = new ArrayList<>();
+    private final Map<SortKey, int[]> permutations = new EnumMap<>(SortKey.class);
+    private IssueSearchIndex index = new IssueSearchIndex();
+    private final IssueFacets facets = new IssueFacets();
+
+    public int size() {
+        return items.size();
+    }
+
+    public List<IssueItem> items() {
+        return items;
+    }
+
+    /** Lista intera già indicizzata, pronta per {@link #install}. */
+    public static final class Prepared {
+        private final List<IssueItem> items;
+        private final IssueSearchIndex index = new IssueSearchIndex();
+        private final IssueFacets facets = new IssueFacets();
+
+        private Prepared(Collection<IssueItem> items) {
+            this.items = new ArrayList<>(items);
+            for (IssueItem it : this.items) index.put(it);
+            facets.rebuild(this.items);
+        }
+
+        public int size() {
+            return items.size();
+        }
+    }
+
+    /**
+     * Costruisce indice di ricerca e faccette per la lista, da un thread in background:
+     * con 100k issue l'indice da solo costa secondi e bloccherebbe il primo frame.
+     */
+    public static Prepared prepare(Collection<IssueItem> items) {
+        return new Prepared(items);
+    }
+
+    /** Come setAll, con indice e faccette già pronti: sul thread FX resta solo lo scambio. */
+    public void install(Prepared prepared) {
+        items.clear();
+        items.addAll(prepared.items);
+        permutations.clear();
+        index = prepared.index;
+        facets.adopt(prepared.facets);
+    }
+
+    public void setAll(Collection<IssueItem> newItems) {
+        items.clear();
+        items.addAll(newItems);
+        permutations.clear();
+        index.clear();
+        for (IssueItem it : newItems) index.put(it);
+        facets.rebuild(items);
+    }
+
+    public void addAll(Collection<IssueItem> more) {
+        int from = items.size();
+        items.addAll(more);
+        permutations.clear();
+        for (int i = from; i < items.size(); i++) {
+            index.put(items.get(i));
+            facets.set(i, items.get(i));
+        }
+    }
+
+    /** Unisce un delta per id: sostituisce le modificate, aggiunge le nuove, toglie le cancellate. */
+    public void applyDelta(Collection<IssueItem> changed, Collection<Long> deleted) {
+        if (changed.isEmpty() && deleted.isEmpty()) return;
+
+        Map<Long, Integer> indexById = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            IssueItem it = items.get(i);
+            if (it.id() != null) indexById.put(it.id(), i);
+        }
+        for (IssueItem it : changed) {
+            Integer idx = it.id() == null ? null : indexById.get(it.id());
+            if (idx != null) {
+                facets.replace(idx, items.set(idx, it), it);
+            } else {
+                items.add(it);
+                facets.set(items.size() - 1, it);
+            }
+            index.put(it);
+        }
+        if (!deleted.isEmpty()) {
+            Set<Long> gone = new HashSet<>(deleted);
+            items.removeIf(it -> it.id() != null && gone.contains(it.id()));
+            for (Long id : deleted) index.remove(id);
+            facets.rebuild(items);
+        }
+        permutations.clear();
+    }
+
+    /** Issue che corrispondono alla query e ai filtri, dalla più rilevante. */
+    public List<IssueItem> search(String query) {
+        List<IssueItem> found = index.search(query);
+        if (!facets.hasSelection()) return found;
+        List<IssueItem> out = new ArrayList<>();
+        for (IssueItem it : found) {
+            if (facets.matches(it)) out.add(it);
+        }
+        return out;
+    }
+
+    public IssueFacets facets() {
+        return facets;
+    }
+
+    /** Vista ordinata e filtrata per faccette (senza copie: legge attraverso la permutazione). */
+    public List<IssueItem> sorted(SortKey key) {
+        int[] perm = filter(permutation(key), facets.mask());
+        return new AbstractList<>() {
+            @Override public IssueItem get(int i) { return items.get(perm[i]); }
+            @Override public int size() { return perm.length; }
+        };
+    }
+
+    /** Tiene, nell'ordine della permutazione, solo le posizioni del mask. */
+    private static int[] filter(int[] perm, BitSet mask) {
+        if (mask == null) return perm;
+        int[] out = new int[mask.cardinality()];
+        int k = 0;
+        for (int pos : perm) {
+            if (mask.get(pos)) out[k++] = pos;
+        }
+        return k == out.length ? out : Arrays.copyOf(out, k);
+    }
+
+    /** Permutazione degli indici per la chiave, calcolata una volta per versione dei dati. */
+    public int[] permutation(SortKey key) {
+        return permutations.computeIfAbsent(key, this::computePermutation);
+    }
+
+    private int[] computePermutation(SortKey key) {
+        int n = items.size();
+        if (n > INDEX_MASK) {
+            return comparatorPermutation(key);
+        }
+
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            IssueItem it = items.get(i);
+            int primary;
+            int secondary;
+            switch (key) {
+                case PRIORITY -> {
+                    primary = priorityRank(it);
+                    secondary = 0;
+                }
+                case STATE -> {
+                    primary = stateRank(it);
+                    secondary = priorityRank(it);
+                }
+                default -> {
+                    primary = 0;
+                    secondary = 0;
+                }
+            }
+            keys[i] = ((long) primary << (INDEX_BITS + DATE_BITS + 4))
+                    | ((long) secondary << (INDEX_BITS + DATE_BITS))
+                    | (newestFirst(it.createdAt()) << INDEX_BITS)
+                    | i;
+        }
+        Arrays.parallelSort(keys);
+
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = (int) (keys[i] & INDEX_MASK);
+        }
+        return perm;
+    }
+
+    /** Fallback per liste enormi che non stanno nei bit dell'indice. */
+    private int[] comparatorPermutation(SortKey key) {
+        Comparator<IssueItem> byDate = Comparator.comparingLong(it -> newestFirst(it.createdAt()));
+        Comparator<IssueItem> cmp = switch (key) {
+            case PRIORITY -> Comparator.comparingInt(IssueBoard::priorityRank).thenComparing(byDate);
+            case STATE -> Comparator.comparingInt(IssueBoard::stateRank)
+                    .thenComparingInt(IssueBoard::priorityRank)
+                    .thenComparing(byDate);
+            default -> byDate;
+        };
+        Integer[] idx = new Integer[items.size()];
+        for (int i = 0; i < idx.length; i++) idx[i] = i;
+        Arrays.parallelSort(idx, (a, b) -> {
+            int c = cmp.compare(items.get(a), items.get(b));
+            return c != 0 ? c : Integer.compare(a, b);
+        });
+        return Arrays.stream(idx).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static long newestFirst(LocalDateTime dt) {
+        if (dt == null) return DATE_MAX;
+        long secs = Math.max(0, Math.min(DATE_MAX, dt.toEpochSecond(ZoneOffset.UTC)));
+        return DATE_MAX - secs;
+    }
+
+    private static int priorityRank(IssueItem it) {
+        return rank(PRIORITY_ORDER, it.priority());
+    }
+
+    private static int stateRank(IssueItem it) {
+        return rank(STATE_ORDER, it.state());
+    }
+
+    /** Posizione nell'ordine noto; valori sconosciuti dopo quelli noti, null in fondo. */
+    private static int rank(List<String> order, String value) {
+        if (value == null || value.isBlank()) return RANK_MAX;
+        int i = order.indexOf(value.trim().toUpperCase(Locale.ROOT).replace(' ', '_'));
+        return i >= 0 ? i : RANK_MAX - 1;
+    }
+}
@@ -4,19 +4,21 @@ import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
+import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.ScrollPane;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
+import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.io.ByteArrayInputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -29,6 +31,10 @@ public class IssueDetailView extends BorderPane {
 
     private final IssueItem item;
 
+    /** Riquadro dell'allegato: l'immagine viene decodificata a questa dimensione. */
+    static final int IMAGE_WIDTH = 520;
+    static final int IMAGE_HEIGHT = 320;
+
     public IssueDetailView(IssueItem item) {
         this.item = item;
 
@@ -108,8 +114,8 @@ public class IssueDetailView extends BorderPane {
 
         ImageView img = new ImageView();
         img.setPreserveRatio(true);
-        img.setFitWidth(520);
-        img.setFitHeight(320);
+        img.setFitWidth(IMAGE_WIDTH);
+        img.setFitHeight(IMAGE_HEIGHT);
         img.getStyleClass().add("detail-image");
 
         Label error = new Label("Impossibile caricare l'allegato.");
@@ -120,9 +126,14 @@ public class IssueDetailView extends BorderPane {
         ProgressIndicator loading = new ProgressIndicator();
         loading.setMaxSize(18, 18);
 
-        loadImage(item.id(), resolvedPath, img, loading, error);
+        loadImage(resolvedPath, img, loading, error);
+
+        // l'originale a piena risoluzione solo su richiesta
+        Button original = new Button("Vedi originale");
+        original.getStyleClass().add("btn-ghost");
+        original.setOnAction(e -> openOriginal(resolvedPath));
 
-        VBox box = new VBox(10, header, img, loading, error);
+        VBox box = new VBox(10, header, img, loading, error, original);
         box.getStyleClass().add("detail-attachment-box");
         return box;
     }
@@ -160,7 +171,8 @@ public class IssueDetailView extends BorderPane {
         return (s == null || s.isBlank()) ? fallback : s;
     }
 
-    private static String resolvePath(String path) {
+    /** URL (o file: locale) dell'allegato a partire dal path salvato nell'issue. */
+    static String resolvePath(String path) {
         String p = path == null ? "" : path.trim();
         if (p.isEmpty()) return p;
         String lower = p.toLowerCase();
@@ -177,12 +189,12 @@ public class IssueDetailView extends BorderPane {
         return ApiConfig.BASE_URL + "/" + p;
     }
 
-    private static void loadImage(Long issueId, String resolvedPath, ImageView img, ProgressIndicator loading, Label error) {
+    private void loadImage(String resolvedPath, ImageView img, ProgressIndicator loading, Label error) {
         if (resolvedPath == null || resolvedPath.isBlank()) return;
 
         loading.setVisible(true);
         if (resolvedPath.toLowerCase().startsWith("file:")) {
-            Image image = new Image(resolvedPath, true);
+            Image image = new Image(resolvedPath, IMAGE_WIDTH, IMAGE_HEIGHT, true, true, true);
             img.setImage(image);
             image.errorProperty().addListener((obs, was, is) -> {
                 if (Boolean.TRUE.equals(is)) {
@@ -194,11 +206,19 @@ public class IssueDetailView extends BorderPane {
             return;
         }
 
+        // già aperta di recente: niente rete né decodifica
+        ImageCache cache = ImageCache.shared();
+        Image cached = cache.cached(item, resolvedPath, IMAGE_WIDTH, IMAGE_HEIGHT);
+        if (cached != null) {
+            img.setImage(cached);
+            loading.setVisible(false);
+            return;
+        }
+
         Task<Image> task = new Task<>() {
             @Override
             protected Image call() throws Exception {
-                byte[] data = IssueApi.downloadIssueImageWithFallback(issueId, resolvedPath);
-                return new Image(new ByteArrayInputStream(data));
+                return cache.load(item, resolvedPath, IMAGE_WIDTH, IMAGE_HEIGHT);
             }
         };
 
@@ -217,9 +237,53 @@ public class IssueDetailView extends BorderPane {
             error.setManaged(true);
         });
 
-        Thread t = new Thread(task);
-        t.setDaemon(true);
-        t.start();
+        ViewScope.of(this).run(task);
+    }
+
+    /** Finestra con l'immagine a dimensione originale (decodificata solo ora). */
+    private void openOriginal(String resolvedPath) {
+        ImageView full = new ImageView();
+        full.setPreserveRatio(true);
+        ProgressIndicator loading = new ProgressIndicator();
+        loading.setMaxSize(32, 32);
+        Label error = new Label("Impossibile caricare l'allegato.");
+        error.getStyleClass().add("error");
+        error.setVisible(false);
+        error.setManaged(false);
+
+        StackPane content = new StackPane(full, loading, error);
+        ScrollPane scroll = new ScrollPane(content);
+        scroll.setPannable(true);
+
+        Stage stage = new Stage();
+        stage.setTitle("Allegato issue #" + safe(item.id()));
+        if (getScene() != null) stage.initOwner(getScene().getWindow());
+        stage.setScene(new Scene(scroll, 900, 700));
+        stage.setOnHidden(e -> ViewScope.cancel(scroll));
+        stage.show();
+
+        if (resolvedPath.toLowerCase().startsWith("file:")) {
+            full.setImage(new Image(resolvedPath, true));
+            loading.setVisible(false);
+            return;
+        }
+
+        Task<Image> task = new Task<>() {
+            @Override
+            protected Image call() throws Exception {
+                return ImageCache.shared().load(item, resolvedPath, 0, 0);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            loading.setVisible(false);
+            full.setImage(task.getValue());
+        });
+        task.setOnFailed(e -> {
+            loading.setVisible(false);
+            error.setVisible(true);
+            error.setManaged(true);
+        });
+        ViewScope.of(scroll).run(task);
     }
 
     private static String fmtDate(LocalDateTime dt) {
@@ -0,0 +1,156 @@
+package application;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Filtri a faccette su tipo, stato e priorità.
+ * Per ogni valore di ogni faccetta c'è un BitSet sulle posizioni delle issue in {@link IssueBoard}:
+ * dentro una faccetta i valori scelti vanno in OR, tra faccette diverse in AND.
+ * I conteggi di una faccetta tengono conto delle scelte fatte sulle altre.
+ * Da usare dal thread FX.
+ */
+public final class IssueFacets {
+
+    public enum Facet {
+        TYPE("Tipo", IssueItem::type),
+        STATE("Stato", IssueItem::state),
+        PRIORITY("Priorità", IssueItem::priority);
+
+        private final String label;
+        private final Function<IssueItem, String> field;
+
+        Facet(String label, Function<IssueItem, String> field) {
+            this.label = label;
+            this.field = field;
+        }
+
+        public String label() { return label; }
+
+        /** Valore della faccetta per l'issue ("-" se manca, come nei chip della lista). */
+        public String valueOf(IssueItem it) {
+            String v = field.apply(it);
+            return (v == null || v.isBlank()) ? "-" : v;
+        }
+    }
+
+    private final Map<Facet, Map<String, BitSet>> bits = new EnumMap<>(Facet.class);
+    private final Map<Facet, Set<String>> selected = new EnumMap<>(Facet.class);
+
+    public IssueFacets() {
+        for (Facet f : Facet.values()) {
+            bits.put(f, new TreeMap<>());
+            selected.put(f, new HashSet<>());
+        }
+    }
+
+    /** Ricalcola tutto (dopo rimozioni, che spostano le posizioni). */
+    void rebuild(List<IssueItem> items) {
+        for (Map<String, BitSet> m : bits.values()) {
+            m.values().forEach(BitSet::clear);
+        }
+        for (int i = 0; i < items.size(); i++) {
+            set(i, items.get(i));
+        }
+    }
+
+    /** Prende i BitSet calcolati altrove (in background), tenendo le scelte correnti. */
+    void adopt(IssueFacets built) {
+        bits.putAll(built.bits);
+    }
+
+    void set(int pos, IssueItem it) {
+        for (Facet f : Facet.values()) {
+            bits.get(f).computeIfAbsent(f.valueOf(it), k -> new BitSet()).set(pos);
+        }
+    }
+
+    /** Aggiornamento incrementale di un'issue modificata nella stessa posizione. */
+    void replace(int pos, IssueItem old, IssueItem now) {
+        for (Facet f : Facet.values()) {
+            BitSet prev = bits.get(f).get(f.valueOf(old));
+            if (prev != null) prev.clear(pos);
+        }
+        set(pos, now);
+    }
+
+    public boolean hasSelection() {
+        for (Set<String> s : selected.values()) {
+            if (!s.isEmpty()) return true;
+        }
+        return false;
+    }
+
+    public boolean isSelected(Facet f, String value) {
+        return selected.get(f).contains(value);
+    }
+
+    public void select(Facet f, String value, boolean on) {
+        if (on) {
+            selected.get(f).add(value);
+        } else {
+            selected.get(f).remove(value);
+        }
+    }
+
+    /** Posizioni che passano tutti i filtri; null se non c'è nessun filtro attivo. */
+    public BitSet mask() {
+        return mask(null);
+    }
+
+    /** Per l'issue senza posizione (es. risultati di ricerca): stesso criterio del mask. */
+    public boolean matches(IssueItem it) {
+        for (Facet f : Facet.values()) {
+            Set<String> s = selected.get(f);
+            if (!s.isEmpty() && !s.contains(f.valueOf(it))) return false;
+        }
+        return true;
+    }
+
+    /** Valori della faccetta con il numero di issue che restano scegliendoli (filtri delle altre faccette applicati). */
+    public Map<String, Integer> counts(Facet f) {
+        BitSet others = mask(f);
+        Map<String, Integer> out = new LinkedHashMap<>();
+        for (Map.Entry<String, BitSet> e : bits.get(f).entrySet()) {
+            BitSet b = e.getValue();
+            if (b.isEmpty() && !isSelected(f, e.getKey())) continue;
+            if (others == null) {
+                out.put(e.getKey(), b.cardinality());
+            } else {
+                BitSet tmp = (BitSet) b.clone();
+                tmp.and(others);
+                out.put(e.getKey(), tmp.cardinality());
+            }
+        }
+        return out;
+    }
+
+    /** AND tra le faccette (esclusa skip), OR tra i valori scelti di ciascuna. */
+    private BitSet mask(Facet skip) {
+        BitSet result = null;
+        for (Facet f : Facet.values()) {
+            if (f == skip) continue;
+            Collection<String> values = selected.get(f);
+            if (values.isEmpty()) continue;
+            BitSet any = new BitSet();
+            for (String v : values) {
+                BitSet b = bits.get(f).get(v);
+                if (b != null) any.or(b);
+            }
+            if (result == null) {
+                result = any;
+            } else {
+                result.and(any);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,178 @@
+package application;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Indice invertito in memoria su titolo e descrizione delle issue.
+ * Ogni termine punta alle issue che lo contengono; una parola della query
+ * trova tutti i termini che iniziano con essa (ricerca mentre si scrive).
+ * Le issue modificate vengono reindicizzate una alla volta; quelle sostituite
+ * restano come "morte" finché non sono abbastanza da giustificare una ricostruzione.
+ * Da usare dal thread FX.
+ */
+public final class IssueSearchIndex {
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int DESC_WEIGHT = 1;
+    /** Bonus se la parola della query è un termine intero, non solo un prefisso. */
+    private static final int EXACT_BONUS = 2;
+    /** Sotto questa lunghezza una parola della query vale solo come termine esatto. */
+    private static final int MIN_PREFIX = 2;
+    private static final int MAX_TERM = 32;
+    /** Ricostruisce l'indice quando le issue morte superano queste soglie. */
+    private static final int COMPACT_MIN_DEAD = 1024;
+
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Long, Integer> ordinalById = new HashMap<>();
+    private final List<IssueItem> docs = new ArrayList<>();
+    private final BitSet alive = new BitSet();
+    private int dead;
+
+    public int size() {
+        return docs.size() - dead;
+    }
+
+    public void clear() {
+        terms.clear();
+        ordinalById.clear();
+        docs.clear();
+        alive.clear();
+        dead = 0;
+    }
+
+    /** Aggiunge o reindicizza (per id) l'issue. */
+    public void put(IssueItem it) {
+        if (it.id() != null) {
+            Integer old = ordinalById.get(it.id());
+            if (old != null) kill(old);
+        }
+        int ord = docs.size();
+        docs.add(it);
+        alive.set(ord);
+        if (it.id() != null) ordinalById.put(it.id(), ord);
+
+        // termine -> 1 se compare nel titolo, 0 solo nella descrizione
+        Map<String, Integer> seen = new HashMap<>();
+        for (String t : tokenize(it.description())) seen.put(t, 0);
+        for (String t : tokenize(it.title())) seen.put(t, 1);
+        for (Map.Entry<String, Integer> e : seen.entrySet()) {
+            terms.computeIfAbsent(e.getKey(), k -> new Postings()).add(ord << 1 | e.getValue());
+        }
+    }
+
+    public void remove(Long id) {
+        Integer ord = id == null ? null : ordinalById.remove(id);
+        if (ord != null) kill(ord);
+    }
+
+    /**
+     * Issue che contengono tutte le parole della query (come prefisso),
+     * dalla più rilevante: titolo prima della descrizione, termini esatti prima dei prefissi.
+     */
+    public List<IssueItem> search(String query) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) return List.of();
+
+        int n = docs.size();
+        int[] score = new int[n];
+        BitSet matched = null;
+        for (String w : words) {
+            BitSet hits = new BitSet(n);
+            NavigableMap<String, Postings> range = w.length() < MIN_PREFIX
+                    ? terms.subMap(w, true, w, true)
+                    : terms.subMap(w, true, w + Character.MAX_VALUE, false);
+            for (Map.Entry<String, Postings> e : range.entrySet()) {
+                int bonus = e.getKey().length() == w.length() ? EXACT_BONUS : 0;
+                Postings p = e.getValue();
+                for (int i = 0; i < p.size; i++) {
+                    int ord = p.data[i] >>> 1;
+                    hits.set(ord);
+                    score[ord] += ((p.data[i] & 1) != 0 ? TITLE_WEIGHT : DESC_WEIGHT) + bonus;
+                }
+            }
+            if (matched == null) {
+                matched = hits;
+            } else {
+                matched.and(hits);
+            }
+            if (matched.isEmpty()) return List.of();
+        }
+        matched.and(alive);
+
+        // punteggio decrescente, poi ordine di inserimento (counting sort: i punteggi sono interi piccoli)
+        int max = 0;
+        for (int ord = matched.nextSetBit(0); ord >= 0; ord = matched.nextSetBit(ord + 1)) {
+            max = Math.max(max, score[ord]);
+        }
+        int[] start = new int[max + 2];
+        for (int ord = matched.nextSetBit(0); ord >= 0; ord = matched.nextSetBit(ord + 1)) {
+            start[max - score[ord] + 1]++;
+        }
+        for (int i = 1; i < start.length; i++) {
+            start[i] += start[i - 1];
+        }
+        IssueItem[] out = new IssueItem[start[start.length - 1]];
+        for (int ord = matched.nextSetBit(0); ord >= 0; ord = matched.nextSetBit(ord + 1)) {
+            out[start[max - score[ord]]++] = docs.get(ord);
+        }
+        return Arrays.asList(out);
+    }
+
+    private void kill(int ord) {
+        alive.clear(ord);
+        dead++;
+        if (dead >= COMPACT_MIN_DEAD && dead > docs.size() / 2) {
+            compact();
+        }
+    }
+
+    /** Ricostruisce l'indice con le sole issue vive. */
+    private void compact() {
+        List<IssueItem> live = new ArrayList<>(size());
+        for (int ord = alive.nextSetBit(0); ord >= 0; ord = alive.nextSetBit(ord + 1)) {
+            live.add(docs.get(ord));
+        }
+        clear();
+        for (IssueItem it : live) put(it);
+    }
+
+    /** Parole in minuscolo, senza accenti. */
+    static List<String> tokenize(String s) {
+        List<String> out = new ArrayList<>();
+        if (s == null || s.isBlank()) return out;
+        String norm = Normalizer.normalize(s, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= norm.length(); i++) {
+            boolean word = i < norm.length() && Character.isLetterOrDigit(norm.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                out.add(norm.substring(start, Math.min(i, start + MAX_TERM)));
+                start = -1;
+            }
+        }
+        return out;
+    }
+
+    /** Lista di posting (ordinale << 1 | nel titolo) senza boxing. */
+    private static final class Postings {
+        int[] data = new int[4];
+        int size;
+
+        void add(int v) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = v;
+        }
+    }
+}
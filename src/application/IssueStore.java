@@ -0,0 +1,285 @@
+package application;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Copia locale (binaria, su disco) delle issue viste per ultime, indicizzata per id.
+ * Serve a mostrare subito la lista all'apertura mentre il backend risponde.
+ *
+ * Il watermark (da dove chiedere il prossimo delta) viene salvato nello stesso file,
+ * con la stessa scrittura atomica dei dati: avanza solo con una lista completa o un delta
+ * applicato, mai con pagine sparse, che non dicono nulla delle cancellazioni.
+ *
+ * Formato: magic + versione + watermark + numero record, poi per ogni record
+ * lunghezza, payload e CRC32 del payload. Un file con versione diversa
+ * o un record corrotto viene scartato per intero.
+ */
+public final class IssueStore {
+
+    private static final int MAGIC = 0x42424953; // "BBIS"
+    private static final short FORMAT_VERSION = 2;
+
+    /** Limiti del file: oltre, le issue in fondo alla lista non vengono salvate. */
+    private static final int MAX_RECORDS = 50_000;
+    private static final long MAX_BYTES = 32L * 1024 * 1024;
+
+    private static IssueStore current;
+
+    private final Path file;
+    private final Map<Long, IssueItem> byId = new LinkedHashMap<>();
+    private LocalDateTime watermark;
+    private boolean loaded;
+
+    private IssueStore(Path file) {
+        this.file = file;
+    }
+
+    /** Store dell'utente loggato (le issue visibili possono dipendere dall'utente). */
+    public static synchronized IssueStore forCurrentUser() {
+        Long uid = Session.getUserId();
+        Path f = ApiConfig.DATA_DIR.resolve("issues-" + (uid == null ? "anon" : uid) + ".bin");
+        if (current == null || !current.file.equals(f)) {
+            current = new IssueStore(f);
+        }
+        return current;
+    }
+
+    /** Issue salvate, nell'ordine in cui erano in lista. */
+    public synchronized List<IssueItem> load() {
+        ensureLoaded();
+        return new ArrayList<>(byId.values());
+    }
+
+    /**
+     * Aggiunge/aggiorna per id, senza rimuovere nulla (una pagina non è l'intera lista).
+     * Il watermark non si muove: tra le issue mancanti potrebbero esserci cancellazioni non viste.
+     */
+    public synchronized void upsert(Collection<IssueItem> items) {
+        ensureLoaded();
+        put(items);
+        write();
+    }
+
+    /** Sostituisce il contenuto con la lista completa appena scaricata; il watermark riparte da lì. */
+    public synchronized void replaceAll(Collection<IssueItem> items) {
+        byId.clear();
+        loaded = true;
+        watermark = null;
+        put(items);
+        watermark = newest(items, null);
+        write();
+    }
+
+    /**
+     * Applica un delta: issue modificate (per id) e tombstone delle cancellate.
+     * Dati e watermark nuovo finiscono su disco insieme: dopo un crash il prossimo delta
+     * riparte esattamente da qui.
+     */
+    public synchronized void applyDelta(Collection<IssueItem> changed, Collection<Long> deleted) {
+        ensureLoaded();
+        for (Long id : deleted) {
+            byId.remove(id);
+        }
+        put(changed);
+        if (watermark != null) watermark = newest(changed, watermark);
+        write();
+    }
+
+    /** Il punto da cui chiedere il delta; null se lo store non viene da una lista completa. */
+    public synchronized LocalDateTime watermark() {
+        ensureLoaded();
+        return watermark;
+    }
+
+    private void put(Collection<IssueItem> items) {
+        for (IssueItem it : items) {
+            if (it.id() != null) byId.put(it.id(), it);
+        }
+    }
+
+    /** updatedAt (o createdAt) più recente tra le issue e from. */
+    private static LocalDateTime newest(Collection<IssueItem> items, LocalDateTime from) {
+        LocalDateTime max = from;
+        for (IssueItem it : items) {
+            LocalDateTime u = it.updatedAt() != null ? it.updatedAt() : it.createdAt();
+            if (u != null && (max == null || u.isAfter(max))) max = u;
+        }
+        return max;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        if (!Files.exists(file)) return;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            Contents c = read(in);
+            for (IssueItem it : c.items()) {
+                byId.put(it.id(), it);
+            }
+            watermark = c.watermark();
+        } catch (IOException ex) {
+            // versione diversa o file corrotto: si riparte da vuoto
+            byId.clear();
+            watermark = null;
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private void write() {
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                write(out, watermark, byId.values());
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            System.out.println("IssueStore: salvataggio fallito: " + ex.getMessage());
+        }
+    }
+
+    // ---- formato
+
+    private record Contents(LocalDateTime watermark, List<IssueItem> items) {}
+
+    private static void write(OutputStream os, LocalDateTime watermark, Collection<IssueItem> items) throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        long bytes = 0;
+        for (IssueItem it : items) {
+            if (records.size() >= MAX_RECORDS) break;
+            byte[] rec = encode(it);
+            if (bytes + rec.length > MAX_BYTES) break;
+            bytes += rec.length;
+            records.add(rec);
+        }
+
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(MAGIC);
+        out.writeShort(FORMAT_VERSION);
+        writeDate(out, watermark);
+        out.writeInt(records.size());
+        CRC32 crc = new CRC32();
+        for (byte[] rec : records) {
+            crc.reset();
+            crc.update(rec);
+            out.writeInt(rec.length);
+            out.write(rec);
+            out.writeInt((int) crc.getValue());
+        }
+        out.flush();
+    }
+
+    private static Contents read(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        if (in.readInt() != MAGIC) throw new IOException("IssueStore: magic non valido");
+        if (in.readShort() != FORMAT_VERSION) throw new IOException("IssueStore: versione non supportata");
+        LocalDateTime watermark = readDate(in);
+
+        int count = in.readInt();
+        if (count < 0 || count > MAX_RECORDS) throw new IOException("IssueStore: numero record non valido");
+
+        List<IssueItem> out = new ArrayList<>(count);
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < count; i++) {
+            int len = in.readInt();
+            if (len <= 0 || len > MAX_BYTES) throw new IOException("IssueStore: record non valido");
+            byte[] rec = in.readNBytes(len);
+            if (rec.length != len) throw new EOFException("IssueStore: file troncato");
+            crc.reset();
+            crc.update(rec);
+            if (in.readInt() != (int) crc.getValue()) throw new IOException("IssueStore: checksum errato");
+            out.add(decode(rec));
+        }
+        return new Contents(watermark, out);
+    }
+
+    private static byte[] encode(IssueItem it) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(buf);
+        out.writeLong(it.id());
+        writeString(out, it.title());
+        writeString(out, it.description());
+        writeString(out, it.priority());
+        writeString(out, it.state());
+        writeString(out, it.type());
+        writeString(out, it.path());
+        writeDate(out, it.createdAt());
+        writeDate(out, it.updatedAt());
+        out.writeBoolean(it.creatorId() != null);
+        if (it.creatorId() != null) out.writeLong(it.creatorId());
+        return buf.toByteArray();
+    }
+
+    private static IssueItem decode(byte[] rec) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(rec));
+        return new IssueItem(
+                in.readLong(),
+                readString(in),
+                readString(in),
+                readString(in),
+                readString(in),
+                readString(in),
+                readString(in),
+                readDate(in),
+                readDate(in),
+                in.readBoolean() ? in.readLong() : null
+        );
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) return null;
+        return new String(in.readNBytes(len), StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDateTime dt) throws IOException {
+        out.writeBoolean(dt != null);
+        if (dt != null) {
+            out.writeLong(dt.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(dt.getNano());
+        }
+    }
+
+    private static LocalDateTime readDate(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+}
@@ -1,20 +1,35 @@
 package application;
 
+import javafx.animation.Animation;
 import javafx.animation.Interpolator;
+import javafx.animation.KeyFrame;
 import javafx.animation.RotateTransition;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.scene.image.ImageView;
+import javafx.scene.control.skin.VirtualFlow;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.*;
 import javafx.scene.shape.SVGPath;
 import javafx.stage.Stage;
 import javafx.stage.Window;
 import javafx.util.Duration;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class IssuesListView extends BorderPane {
 
@@ -22,6 +37,49 @@ public class IssuesListView extends BorderPane {
     private final Label error = new Label();
     private final ProgressIndicator spinner = new ProgressIndicator();
     private final ComboBox<SortOpt> sortCombo = new ComboBox<>();
+    private final TextField search = new TextField();
+    private final Label searchInfo = new Label();
+    private final Map<IssueFacets.Facet, MenuButton> facetMenus = new EnumMap<>(IssueFacets.Facet.class);
+    private final Map<IssueFacets.Facet, Map<String, CheckBox>> facetChecks = new EnumMap<>(IssueFacets.Facet.class);
+
+    /** Issue caricate; la lista mostra la loro permutazione per l'ordinamento scelto. */
+    private final IssueBoard board = new IssueBoard();
+    /** Modelli delle card per issue (per identità: una issue aggiornata è un nuovo record). */
+    private final Map<IssueItem, CardModel> cards = new IdentityHashMap<>();
+    private static final int CARD_CACHE_SLACK = 1000;
+    /** Miniature degli allegati, solo per le celle visibili. */
+    private final ThumbnailLoader thumbnails = new ThumbnailLoader(this);
+    /** Allegati scaricati in anticipo (hover, scroll fermo) per aprire il dettaglio a cache calda. */
+    private final Prefetcher prefetcher = new Prefetcher(this, this::upcomingTargets);
+
+    /** Issue per pagina richiesta al backend. */
+    private static final int PAGE_SIZE = 200;
+    /** Issue consegnate alla lista per ogni blocco durante lo streaming. */
+    private static final int BATCH_SIZE = 50;
+    /** Righe dalla fine della lista a cui parte la pagina successiva. */
+    private static final int PREFETCH_ROWS = 30;
+
+    private Task<String> loading;
+    private String nextCursor;
+    private boolean pageInFlight;
+    /** Ordinamento chiesto al backend per la prima pagina; le successive seguono lo stesso cursore. */
+    private IssueBoard.SortKey pageSort;
+
+    /** Ogni quanto parte l'aggiornamento automatico (delta). */
+    private static final int AUTO_REFRESH_SECONDS = 60;
+    /** Oltre questo tempo dall'ultimo caricamento completo si ricarica tutto invece del delta. */
+    private static final long FULL_RECONCILE_MILLIS = 30 * 60 * 1000;
+
+    private boolean deltaSupported = true;
+    private boolean deltaInFlight;
+    private long lastFullLoad;
+
+    /** true dopo il primo blocco arrivato dal backend: la copia locale non serve più. */
+    private boolean fromNetwork;
+    /** Pagine arrivate dal backend e non ancora scritte nello store locale. */
+    private boolean unsavedPages;
+    /** Store dell'utente per cui sono state caricate le pagine (alla chiusura la sessione può essere già cambiata). */
+    private IssueStore pagesStore;
 
     public IssuesListView() {
         getStyleClass().add("root");
@@ -48,11 +106,18 @@ public class IssuesListView extends BorderPane {
 
         // --- Controls row
         sortCombo.getItems().addAll(
-                new SortOpt("Data creazione", "createdAt"),
-                new SortOpt("Priorità", "priority"),
-                new SortOpt("Stato", "state")
+                new SortOpt("Data creazione", IssueBoard.SortKey.CREATED_AT),
+                new SortOpt("Priorità", IssueBoard.SortKey.PRIORITY),
+                new SortOpt("Stato", IssueBoard.SortKey.STATE)
         );
         sortCombo.setValue(sortCombo.getItems().getFirst());
+        // riordina in memoria, senza richieste
+        sortCombo.valueProperty().addListener((obs, was, is) -> showSorted());
+
+        search.setPromptText("Cerca in titolo e descrizione");
+        search.setPrefColumnCount(22);
+        search.textProperty().addListener((obs, was, is) -> showSorted());
+        searchInfo.getStyleClass().add("muted");
 
         SVGPath refreshIcon = new SVGPath();
         refreshIcon.setContent("M12 2a10 10 0 1 0 10 10h-2a8 8 0 1 1-8-8v2l4-3-4-3v2z");
@@ -63,7 +128,7 @@ public class IssuesListView extends BorderPane {
         refresh.setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
         refresh.getStyleClass().add("btn-refresh-icon");
         refresh.setTooltip(new Tooltip("Aggiorna"));
-        refresh.setOnAction(e -> load());
+        refresh.setOnAction(e -> refresh());
 
         RotateTransition rotate = new RotateTransition(Duration.millis(300), refreshIcon);
         rotate.setInterpolator(Interpolator.EASE_BOTH);
@@ -81,19 +146,38 @@ public class IssuesListView extends BorderPane {
         HBox controls = new HBox(8,
                 new Label("Ordina per:"),
                 sortCombo,
-                refresh
+                refresh,
+                search,
+                searchInfo
         );
         controls.setAlignment(Pos.CENTER_LEFT);
         HBox.setMargin(refresh, new Insets(0, 0, 0, 12));
+        HBox.setMargin(search, new Insets(0, 0, 0, 12));
         controls.setPadding(new Insets(0, 16, 10, 16));
         controls.getStyleClass().add("subbar");
 
-        VBox header = new VBox(top, controls);
+        // --- Filters row
+        HBox filters = new HBox(8, new Label("Filtra:"));
+        for (IssueFacets.Facet f : IssueFacets.Facet.values()) {
+            MenuButton menu = new MenuButton(f.label());
+            facetMenus.put(f, menu);
+            facetChecks.put(f, new HashMap<>());
+            filters.getChildren().add(menu);
+        }
+        filters.setAlignment(Pos.CENTER_LEFT);
+        filters.setPadding(new Insets(0, 16, 10, 16));
+        filters.getStyleClass().add("subbar");
+
+        VBox header = new VBox(top, controls, filters);
         setTop(header);
 
         // --- list
         list.getStyleClass().add("issues-list");
         list.setCellFactory(lv -> new IssueCell());
+        // qualunque modo di scorrere sospende il prefetch speculativo
+        list.addEventFilter(ScrollEvent.ANY, e -> prefetcher.scrolled());
+        list.addEventFilter(MouseEvent.MOUSE_DRAGGED, e -> prefetcher.scrolled());
+        list.addEventFilter(KeyEvent.KEY_PRESSED, e -> prefetcher.scrolled());
         setCenter(list);
 
         // --- bottom status
@@ -109,26 +193,327 @@ public class IssuesListView extends BorderPane {
         bottom.setAlignment(Pos.CENTER_LEFT);
         setBottom(bottom);
 
+        showStored();
         load();
+
+        // aggiornamento periodico silenzioso; si ferma quando la vista esce dalla scena
+        Timeline autoRefresh = new Timeline(new KeyFrame(Duration.seconds(AUTO_REFRESH_SECONDS), e -> autoRefresh()));
+        autoRefresh.setCycleCount(Animation.INDEFINITE);
+        autoRefresh.play();
+        sceneProperty().addListener((obs, was, is) -> {
+            if (is == null) {
+                autoRefresh.stop();
+                // lista non finita: salva comunque le pagine già scorse, una volta sola
+                if (unsavedPages) persist(false);
+            }
+        });
     }
 
-    private void load() {
+    /**
+     * Mostra subito l'ultima lista salvata in locale, finché il backend non risponde.
+     * Indice e faccette si costruiscono nel task: sul thread FX resta solo l'installazione.
+     */
+    private void showStored() {
+        IssueStore store = IssueStore.forCurrentUser();
+        Task<IssueBoard.Prepared> task = new Task<>() {
+            @Override
+            protected IssueBoard.Prepared call() {
+                return IssueBoard.prepare(store.load());
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (fromNetwork || task.getValue().size() == 0) return;
+            board.install(task.getValue());
+            showSorted();
+            list.setDisable(false);
+        });
+        ViewScope.of(this).run(task);
+    }
+
+    /** Pulsante Aggiorna: delta se possibile, altrimenti ricarica dalla prima pagina. */
+    private void refresh() {
+        refresh(true);
+    }
+
+    /**
+     * Aggiornamento periodico: non deve mai disturbare chi sta usando la lista (niente spinner
+     * bloccante, cursore e pagine già scorse restano). Senza delta rivalida la prima pagina.
+     */
+    private void autoRefresh() {
+        refresh(false);
+    }
+
+    /**
+     * Aggiorna scaricando solo le issue cambiate dall'ultimo updatedAt visto.
+     * Se non c'è ancora un watermark, se il backend non ha l'endpoint dei delta o se l'ultimo
+     * caricamento completo è troppo vecchio: con manual ricarica tutto, altrimenti {@link #revalidate}.
+     */
+    private void refresh(boolean manual) {
+        if (pageInFlight || deltaInFlight) return;
+        IssueStore store = IssueStore.forCurrentUser();
+        if (!deltaSupported || System.currentTimeMillis() - lastFullLoad > FULL_RECONCILE_MILLIS) {
+            if (manual) {
+                load();
+            } else {
+                revalidate();
+            }
+            return;
+        }
+
         hideError();
-        setLoading(true);
+        deltaInFlight = true;
+        spinner.setVisible(true);
+
+        Task<IssueApi.IssueDelta> task = new Task<>() {
+            @Override
+            protected IssueApi.IssueDelta call() throws Exception {
+                LocalDateTime since = store.watermark();
+                if (since == null) return null;
+                IssueApi.IssueDelta delta = IssueApi.getIssuesChangedSince(since);
+                store.applyDelta(delta.changed(), delta.deleted());
+                return delta;
+            }
+        };
+
+        task.setOnSucceeded(e -> {
+            deltaInFlight = false;
+            spinner.setVisible(false);
+            if (task.getValue() == null) {
+                if (manual) {
+                    load();
+                } else {
+                    revalidate();
+                }
+            } else {
+                mergeDelta(task.getValue());
+            }
+        });
+
+        task.setOnFailed(e -> {
+            deltaInFlight = false;
+            spinner.setVisible(false);
+            Throwable ex = task.getException();
+            if (ex instanceof IssueApi.DeltaNotSupportedException) {
+                deltaSupported = false;
+                if (manual) {
+                    load();
+                } else {
+                    revalidate();
+                }
+            } else if (ex instanceof IssueApi.UnauthorizedException) {
+                showError("Sessione non valida. Effettua di nuovo il login.");
+                AppNavigator.goLogin();
+            } else {
+                showError("Errore aggiornamento issue: " + ex.getMessage());
+            }
+        });
+
+        ViewScope.of(this).run(task);
+    }
+
+    /**
+     * Riscarica in silenzio la prima pagina (GET condizionale: con l'ETag in cache il backend
+     * risponde 304 senza body) e unisce per id solo le issue nuove o cambiate.
+     * Non tocca cursore, pagine già caricate né lo stato di caricamento; le cancellazioni
+     * arrivano con il prossimo Aggiorna manuale.
+     */
+    private void revalidate() {
+        deltaInFlight = true;
+        String sort = pageSort.api();
+        Map<Long, IssueItem> shown = new HashMap<>();
+        for (IssueItem it : board.items()) {
+            if (it.id() != null) shown.put(it.id(), it);
+        }
+        IssueStore store = IssueStore.forCurrentUser();
 
         Task<List<IssueItem>> task = new Task<>() {
             @Override
             protected List<IssueItem> call() throws Exception {
-                return IssueApi.getIssues(sortCombo.getValue().api());
+                List<IssueItem> changed = new ArrayList<>();
+                for (IssueItem it : IssueApi.getIssuesPage(sort, null, PAGE_SIZE).items()) {
+                    if (!it.equals(shown.get(it.id()))) changed.add(it);
+                }
+                if (!changed.isEmpty()) store.upsert(changed);
+                return changed;
             }
         };
 
         task.setOnSucceeded(e -> {
+            deltaInFlight = false;
+            mergeDelta(new IssueApi.IssueDelta(task.getValue(), List.of()));
+        });
+
+        task.setOnFailed(e -> {
+            deltaInFlight = false;
+            Throwable ex = task.getException();
+            if (ex instanceof IssueApi.UnauthorizedException) {
+                showError("Sessione non valida. Effettua di nuovo il login.");
+                AppNavigator.goLogin();
+            } else {
+                showError("Errore aggiornamento issue: " + ex.getMessage());
+            }
+        });
+
+        ViewScope.of(this).run(task);
+    }
+
+    private void mergeDelta(IssueApi.IssueDelta delta) {
+        if (delta.changed().isEmpty() && delta.deleted().isEmpty()) return;
+        board.applyDelta(delta.changed(), delta.deleted());
+        showSorted();
+    }
+
+    /**
+     * Mostra le issue caricate nell'ordinamento scelto (permutazione già calcolata se i dati non sono cambiati),
+     * oppure, se c'è una ricerca, i risultati dal più rilevante.
+     */
+    private void showSorted() {
+        String q = search.getText();
+        if (q == null || q.isBlank()) {
+            List<IssueItem> shown = board.sorted(sortCombo.getValue().key());
+            searchInfo.setText(board.facets().hasSelection()
+                    ? shown.size() + " su " + board.size()
+                    : "");
+            list.getItems().setAll(shown);
+        } else {
+            long t0 = System.nanoTime();
+            List<IssueItem> found = board.search(q);
+            double ms = (System.nanoTime() - t0) / 1_000_000.0;
+            searchInfo.setText(String.format("%d risultati su %d (%.2f ms)", found.size(), board.size(), ms));
+            list.getItems().setAll(found);
+        }
+        updateFacetMenus();
+        prefetcher.settle();
+    }
+
+    /** Issue con allegato dalla prima visibile fino a ahead oltre l'ultima visibile. */
+    private List<Prefetcher.Target> upcomingTargets(int ahead) {
+        if (!(list.lookup(".virtual-flow") instanceof VirtualFlow<?> flow)) return List.of();
+        IndexedCell<?> first = flow.getFirstVisibleCell();
+        IndexedCell<?> last = flow.getLastVisibleCell();
+        if (first == null || last == null) return List.of();
+
+        List<IssueItem> items = list.getItems();
+        int end = Math.min(items.size() - 1, last.getIndex() + ahead);
+        List<Prefetcher.Target> out = new ArrayList<>();
+        for (int i = Math.max(0, first.getIndex()); i <= end; i++) {
+            IssueItem it = items.get(i);
+            String path = cardFor(it).imagePath();
+            if (path != null) out.add(new Prefetcher.Target(it, path));
+        }
+        return out;
+    }
+
+    /** Aggiorna valori e conteggi dei menu filtro (le voci esistenti vengono riusate, il menu può restare aperto). */
+    private void updateFacetMenus() {
+        IssueFacets facets = board.facets();
+        for (IssueFacets.Facet f : IssueFacets.Facet.values()) {
+            Map<String, Integer> counts = facets.counts(f);
+            Map<String, CheckBox> checks = facetChecks.get(f);
+            MenuButton menu = facetMenus.get(f);
+
+            checks.keySet().removeIf(v -> {
+                if (counts.containsKey(v)) return false;
+                menu.getItems().removeIf(mi -> mi instanceof CustomMenuItem c && c.getContent() == checks.get(v));
+                return true;
+            });
+
+            int active = 0;
+            for (Map.Entry<String, Integer> e : counts.entrySet()) {
+                String value = e.getKey();
+                CheckBox cb = checks.computeIfAbsent(value, v -> {
+                    CheckBox box = new CheckBox();
+                    box.setOnAction(ev -> {
+                        facets.select(f, v, box.isSelected());
+                        showSorted();
+                    });
+                    CustomMenuItem item = new CustomMenuItem(box);
+                    item.setHideOnClick(false);
+                    menu.getItems().add(item);
+                    return box;
+                });
+                cb.setText(value + " (" + e.getValue() + ")");
+                cb.setSelected(facets.isSelected(f, value));
+                if (cb.isSelected()) active++;
+            }
+            menu.setText(active == 0 ? f.label() : f.label() + " (" + active + ")");
+        }
+    }
+
+    /** Ricarica dalla prima pagina. */
+    private void load() {
+        hideError();
+        lastFullLoad = System.currentTimeMillis();
+        if (loading != null) {
+            loading.cancel(true);
+        }
+        nextCursor = null;
+        pageSort = sortCombo.getValue().key();
+        pagesStore = IssueStore.forCurrentUser();
+        setLoading(true);
+        fetchPage(null);
+    }
+
+    /** Chiamato dalle celle: scaricare la pagina successiva quando lo scroll si avvicina alla fine. */
+    private void maybeLoadNextPage(int index) {
+        if (pageInFlight || nextCursor == null) return;
+        // con una ricerca attiva la lista è corta: non è lo scroll a chiedere altre pagine
+        if (!search.getText().isBlank()) return;
+        if (index < list.getItems().size() - PREFETCH_ROWS) return;
+        spinner.setVisible(true);
+        fetchPage(nextCursor);
+    }
+
+    private void fetchPage(String cursor) {
+        boolean firstPage = cursor == null;
+        String sort = pageSort.api();
+        pageInFlight = true;
+
+        Task<String> task = new Task<>() {
+            private boolean first = firstPage;
+
+            @Override
+            protected String call() throws Exception {
+                return IssueApi.streamIssuesPage(sort, cursor, PAGE_SIZE, BATCH_SIZE, batch -> {
+                    Platform.runLater(() -> {
+                        if (isCancelled()) return;
+                        // la lista precedente (o quella salvata) resta visibile fino al primo blocco
+                        if (first) {
+                            first = false;
+                            fromNetwork = true;
+                            board.setAll(batch);
+                            list.setDisable(false);
+                        } else {
+                            board.addAll(batch);
+                        }
+                        showSorted();
+                    });
+                });
+            }
+
+            @Override
+            protected void succeeded() {
+                // prima pagina vuota: nessun blocco consegnato
+                if (first) {
+                    fromNetwork = true;
+                    board.setAll(List.of());
+                    showSorted();
+                }
+            }
+        };
+        loading = task;
+
+        task.setOnSucceeded(e -> {
+            pageInFlight = false;
+            nextCursor = task.getValue();
             setLoading(false);
-            list.getItems().setAll(task.getValue());
+            unsavedPages = true;
+            // a fine lista sappiamo anche cosa è stato cancellato: lo store diventa la lista completa
+            if (nextCursor == null) persist(true);
         });
 
         task.setOnFailed(e -> {
+            pageInFlight = false;
             setLoading(false);
             Throwable ex = task.getException();
             if (ex instanceof IssueApi.UnauthorizedException) {
@@ -141,9 +526,25 @@ public class IssuesListView extends BorderPane {
             }
         });
 
-        Thread t = new Thread(task);
-        t.setDaemon(true);
-        t.start();
+        ViewScope.of(this).run(task);
+    }
+
+    /**
+     * Scrive nello store locale le issue caricate, con una sola riscrittura del file:
+     * complete = lista intera (sostituisce), altrimenti solo le pagine scorse (aggiunge/aggiorna).
+     * Su un thread a parte, non legato alla vista: deve finire anche se la vista viene chiusa.
+     */
+    private void persist(boolean complete) {
+        unsavedPages = false;
+        List<IssueItem> snapshot = List.copyOf(board.items());
+        IssueStore store = pagesStore;
+        Thread.startVirtualThread(() -> {
+            if (complete) {
+                store.replaceAll(snapshot);
+            } else {
+                store.upsert(snapshot);
+            }
+        });
     }
 
     private void setLoading(boolean v) {
@@ -163,7 +564,7 @@ public class IssuesListView extends BorderPane {
         error.setVisible(false);
     }
 
-    private record SortOpt(String label, String api) {
+    private record SortOpt(String label, IssueBoard.SortKey key) {
         @Override public String toString() { return label; }
     }
 
@@ -185,53 +586,87 @@ public class IssuesListView extends BorderPane {
         stage.setMinWidth(620);
         stage.setMinHeight(520);
         stage.setScene(scene);
+        stage.setOnHidden(e -> ViewScope.cancel(root));
         stage.show();
     }
 
-    // ---- cell card style
-    private class IssueCell extends ListCell<IssueItem> {
-        @Override
-        protected void updateItem(IssueItem it, boolean empty) {
-            super.updateItem(it, empty);
-            if (empty || it == null) {
-                setText(null);
-                setGraphic(null);
-                return;
-            }
-
-            Label title = new Label(it.title());
-            title.getStyleClass().add("card-title");
+    /** Testi e stato della card, calcolati una volta per issue e riusati a ogni scroll. */
+    private record CardModel(String title, String description,
+                             String typeChip, String stateChip, String prioChip,
+                             boolean mine, boolean canEdit, String imagePath) {
 
+        static CardModel of(IssueItem it) {
             String desc = it.description() == null ? "" : it.description();
             if (desc.length() > 140) desc = desc.substring(0, 140) + "…";
-            Label description = new Label(desc);
+
+            boolean mine = Session.getUserId() != null && it.creatorId() != null
+                    && it.creatorId().longValue() == Session.getUserId().longValue();
+
+            return new CardModel(
+                    it.title(),
+                    desc,
+                    "TYPE: " + safe(it.type()),
+                    "STATE: " + safe(it.state()),
+                    "PRIO: " + safe(it.priority()),
+                    mine,
+                    Session.isAdmin() || mine,
+                    it.path() == null || it.path().isBlank() ? null : IssueDetailView.resolvePath(it.path())
+            );
+        }
+
+        private static String safe(String s) {
+            return (s == null || s.isBlank()) ? "-" : s;
+        }
+    }
+
+    private CardModel cardFor(IssueItem it) {
+        // issue sostituite da delta/ricariche restano in cache: si svuota quando cresce troppo
+        if (cards.size() > 2 * board.size() + CARD_CACHE_SLACK) cards.clear();
+        return cards.computeIfAbsent(it, CardModel::of);
+    }
+
+    // ---- cell card style
+    // Il grafo dei nodi viene creato una volta per cella; updateItem riassegna solo testi e stato.
+    private class IssueCell extends ListCell<IssueItem> {
+        private final Label title = new Label();
+        private final Label description = new Label();
+        private final Label typeChip = chip();
+        private final Label stateChip = chip();
+        private final Label prioChip = chip();
+        private final Label owner = new Label();
+        private final Button editBtn = new Button();
+        private final ImageView thumb = new ImageView();
+        private final StackPane thumbBox = new StackPane(thumb);
+        private final VBox card;
+
+        private IssueItem bound;
+        private CardModel boundModel;
+        private boolean locked;
+        private ThumbnailLoader.Request thumbRequest;
+
+        IssueCell() {
+            title.getStyleClass().add("card-title");
             description.getStyleClass().add("card-desc");
             description.setWrapText(true);
 
-            HBox chips = new HBox(8,
-                    chip("TYPE: " + safe(it.type())),
-                    chip("STATE: " + safe(it.state())),
-                    chip("PRIO: " + safe(it.priority()))
-            );
+            HBox chips = new HBox(8, typeChip, stateChip, prioChip);
 
-            boolean mine = Session.getUserId() != null && it.creatorId() != null
-                    && it.creatorId().longValue() == Session.getUserId().longValue();
+            thumb.setFitWidth(ThumbnailLoader.WIDTH);
+            thumb.setFitHeight(ThumbnailLoader.HEIGHT);
+            thumb.setPreserveRatio(true);
+            thumbBox.getStyleClass().add("card-thumb");
+            thumbBox.setMinSize(ThumbnailLoader.WIDTH, ThumbnailLoader.HEIGHT);
+            thumbBox.setMaxSize(ThumbnailLoader.WIDTH, ThumbnailLoader.HEIGHT);
 
-            boolean canEdit = Session.isAdmin() || mine;
+            VBox text = new VBox(10, title, description);
+            HBox.setHgrow(text, Priority.ALWAYS);
+            HBox top = new HBox(12, text, thumbBox);
 
-            Button editBtn = new Button(canEdit ? "✏ Modifica" : "🔒 Modifica");
             editBtn.getStyleClass().add("btn-secondary");
+            editBtn.setOnAction(e -> {
+                if (bound != null && !locked) AppNavigator.goModifyIssue(bound);
+            });
 
-            if (!canEdit) {
-                editBtn.setDisable(true);
-                editBtn.getStyleClass().add("btn-locked");
-            } else {
-                editBtn.setOnAction(e -> {
-                    AppNavigator.goModifyIssue(it);
-                });
-            }
-
-            Label owner = new Label(mine ? "🟢 Creata da te" : "⚪ Altra issue");
             owner.getStyleClass().add("muted");
 
             Region spacer = new Region();
@@ -239,28 +674,99 @@ public class IssuesListView extends BorderPane {
             HBox footer = new HBox(10, owner, spacer, editBtn);
             footer.setAlignment(Pos.CENTER_LEFT);
 
-            VBox card = new VBox(10, title, description, chips, footer);
+            card = new VBox(10, top, chips, footer);
             card.getStyleClass().add("issue-card");
             card.setPadding(new Insets(12));
             card.getStyleClass().add("issue-card-clickable");
             card.setOnMouseClicked(e -> {
                 if (e.getButton() != MouseButton.PRIMARY) return;
                 if (isInsideButton(e.getTarget())) return;
-                openDetails(it);
+                openDetails(bound);
+            });
+            card.setOnMouseEntered(e -> {
+                if (boundModel != null && boundModel.imagePath() != null) {
+                    prefetcher.hover(new Prefetcher.Target(bound, boundModel.imagePath()));
+                }
+            });
+            card.setOnMouseExited(e -> prefetcher.hoverEnd(bound));
+
+            // le celle di riserva del VirtualFlow restano nascoste: niente caricamenti per loro
+            visibleProperty().addListener((obs, was, is) -> {
+                if (!is) {
+                    cancelThumb();
+                } else if (boundModel != null && thumb.getImage() == null) {
+                    requestThumb(bound, boundModel);
+                }
             });
 
             setText(null);
-            setGraphic(card);
         }
 
-        private static Label chip(String s) {
-            Label l = new Label(s);
-            l.getStyleClass().add("chip");
-            return l;
+        @Override
+        protected void updateItem(IssueItem it, boolean empty) {
+            super.updateItem(it, empty);
+            if (empty || it == null) {
+                cancelThumb();
+                bound = null;
+                boundModel = null;
+                setGraphic(null);
+            } else {
+                maybeLoadNextPage(getIndex());
+                if (it != bound) {
+                    CardModel m = cardFor(it);
+                    bind(m);
+                    bound = it;
+                    boundModel = m;
+                    requestThumb(it, m);
+                }
+                setGraphic(card);
+            }
         }
 
-        private static String safe(String s) {
-            return (s == null || s.isBlank()) ? "-" : s;
+        private void bind(CardModel m) {
+            title.setText(m.title());
+            description.setText(m.description());
+            typeChip.setText(m.typeChip());
+            stateChip.setText(m.stateChip());
+            prioChip.setText(m.prioChip());
+            owner.setText(m.mine() ? "🟢 Creata da te" : "⚪ Altra issue");
+
+            boolean lock = !m.canEdit();
+            editBtn.setText(lock ? "🔒 Modifica" : "✏ Modifica");
+            editBtn.setDisable(lock);
+            if (lock != locked) {
+                if (lock) {
+                    editBtn.getStyleClass().add("btn-locked");
+                } else {
+                    editBtn.getStyleClass().remove("btn-locked");
+                }
+                locked = lock;
+            }
+        }
+
+        private void requestThumb(IssueItem it, CardModel m) {
+            cancelThumb();
+            thumb.setImage(null);
+            boolean has = m.imagePath() != null;
+            thumbBox.setVisible(has);
+            thumbBox.setManaged(has);
+            if (!has) return;
+            thumbRequest = thumbnails.request(it, m.imagePath(), img -> {
+                if (bound == it) thumb.setImage(img);
+            });
+        }
+
+        private void cancelThumb() {
+            if (thumbRequest != null) {
+                thumbRequest.cancel();
+                thumbRequest = null;
+            }
+        }
+
+        private static Label chip() {
+            Label l = new Label();
+            l.getStyleClass().add("chip");
+            return l;
         }
 
         private static boolean isInsideButton(Object target) {
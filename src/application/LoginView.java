@@ -159,9 +159,7 @@ public class LoginView extends BorderPane {
             }
         });
 
-        Thread t = new Thread(task);
-        t.setDaemon(true);
-        t.start();
+        ViewScope.of(this).run(task);
     }
 
     
@@ -33,6 +33,10 @@ public class Main extends Application {
         primaryStage.setResizable(true);                       // <-- NON più false
         primaryStage.centerOnScreen();
         primaryStage.show();
+
+        if (UiPerf.ENABLED) {
+            UiPerf.startFrameMonitor();
+        }
     }
 
     public static void main(String[] args) {
@@ -6,9 +6,11 @@ import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Control;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
@@ -23,6 +25,7 @@ import javafx.stage.FileChooser;
 
 import java.io.File;
 import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
 
 public class ModifyIssueView extends BorderPane {
 
@@ -37,12 +40,20 @@ public class ModifyIssueView extends BorderPane {
     private final Button pickImgBtn = new Button("Sostituisci immagine");
     private final Label fileLabel = new Label("Nessun file selezionato");
     private final ImageView preview = new ImageView();
+    /** L'anteprima viene decodificata direttamente a questa dimensione. */
+    private static final int PREVIEW_WIDTH = 220;
+    private static final int PREVIEW_HEIGHT = 140;
 
     private File selectedImage = null;
+    /** Riduzione/ricodifica dell'immagine prima dell'upload (in background appena scelta). */
+    private final CheckBox optimizeBox = new CheckBox("Ottimizza prima dell'invio");
+    private final Label optimizeInfo = new Label();
+    private CompletableFuture<ImagePreprocessor.Result> prepared;
 
     private final Button submitBtn = new Button("Salva modifiche");
     private final Button cancelBtn = new Button("Indietro");
     private final ProgressIndicator spinner = new ProgressIndicator();
+    private final ProgressBar uploadBar = new ProgressBar(0);
 
     private final Label errorLabel = new Label();
 
@@ -76,6 +87,10 @@ public class ModifyIssueView extends BorderPane {
         spinner.setVisible(false);
         spinner.setMaxSize(18, 18);
 
+        uploadBar.setPrefWidth(160);
+        uploadBar.setVisible(false);
+        uploadBar.setManaged(false);
+
         errorLabel.getStyleClass().add("error");
         errorLabel.setManaged(false);
         errorLabel.setVisible(false);
@@ -99,8 +114,8 @@ public class ModifyIssueView extends BorderPane {
         typeBox.getStyleClass().add("bb-choice");
         priorityBox.getStyleClass().add("bb-choice");
 
-        preview.setFitWidth(220);
-        preview.setFitHeight(140);
+        preview.setFitWidth(PREVIEW_WIDTH);
+        preview.setFitHeight(PREVIEW_HEIGHT);
         preview.setPreserveRatio(true);
         preview.getStyleClass().add("img-preview");
 
@@ -189,11 +204,18 @@ public class ModifyIssueView extends BorderPane {
         pickImgBtn.setPrefWidth(200);
         HBox row = new HBox(12, pickImgBtn, fileLabel);
         row.setAlignment(Pos.CENTER_LEFT);
-        return row;
+
+        optimizeBox.setSelected(true);
+        optimizeBox.setOnAction(e -> prepareImage());
+        optimizeInfo.getStyleClass().add("muted");
+        HBox optimizeRow = new HBox(10, optimizeBox, optimizeInfo);
+        optimizeRow.setAlignment(Pos.CENTER_LEFT);
+
+        return new VBox(8, row, optimizeRow);
     }
 
     private Node actionsRow() {
-        HBox row = new HBox(10, submitBtn, spinner, cancelBtn);
+        HBox row = new HBox(10, submitBtn, spinner, uploadBar, cancelBtn);
         row.setAlignment(Pos.CENTER_LEFT);
         return row;
     }
@@ -218,19 +240,57 @@ public class ModifyIssueView extends BorderPane {
         selectedImage = f;
         fileLabel.setText(f.getName());
         try {
-            preview.setImage(new Image(f.toURI().toString()));
+            preview.setImage(new Image(f.toURI().toString(), PREVIEW_WIDTH, PREVIEW_HEIGHT, true, true, true));
         } catch (Exception ex) {
             preview.setImage(null);
         }
+        prepareImage();
+    }
+
+    /** Avvia l'ottimizzazione dell'immagine scelta; l'invio userà il risultato appena pronto. */
+    private void prepareImage() {
+        if (prepared != null) prepared.cancel(true);
+        prepared = null;
+        optimizeInfo.setText("");
+        File f = selectedImage;
+        if (f == null || !optimizeBox.isSelected()) return;
+
+        optimizeInfo.setText("Ottimizzazione in corso…");
+        CompletableFuture<ImagePreprocessor.Result> job = ViewScope.of(this)
+                .supply(() -> ImagePreprocessor.process(f, ImagePreprocessor.Options.DEFAULT));
+        prepared = job;
+        ViewScope.of(this).onFx(job,
+                r -> { if (prepared == job) optimizeInfo.setText(r.summary()); },
+                ex -> { if (prepared == job) optimizeInfo.setText("Ottimizzazione non riuscita: invio una copia senza metadati"); });
+    }
+
+    /**
+     * File da caricare: l'ottimizzato se pronto; se l'ottimizzazione è fallita una copia
+     * senza metadati, e se neanche quella si può fare l'upload fallisce (mai l'originale).
+     */
+    private CompletableFuture<File> fileToUpload(File original) {
+        if (prepared == null) return CompletableFuture.completedFuture(original);
+        return prepared.handle((r, ex) -> r)
+                .thenCompose(r -> r != null
+                        ? CompletableFuture.completedFuture(r.file())
+                        : ViewScope.of(this).supply(() -> ImagePreprocessor.stripOnly(original).file()));
     }
 
     private void loadExistingImage() {
         if (item.id() == null) return;
+        ImageCache cache = ImageCache.shared();
+        // stessa chiave di dettaglio, lista e prefetch: si riusano le immagini già scaricate
+        String path = item.path() == null || item.path().isBlank() ? null : IssueDetailView.resolvePath(item.path());
+        Image cached = cache.cached(item, path, PREVIEW_WIDTH, PREVIEW_HEIGHT);
+        if (cached != null) {
+            preview.setImage(cached);
+            return;
+        }
+
         Task<Image> task = new Task<>() {
             @Override
             protected Image call() throws Exception {
-                byte[] data = IssueApi.downloadIssueImageWithFallback(item.id(), item.path());
-                return new Image(new java.io.ByteArrayInputStream(data));
+                return cache.load(item, path, PREVIEW_WIDTH, PREVIEW_HEIGHT);
             }
         };
 
@@ -239,9 +299,7 @@ public class ModifyIssueView extends BorderPane {
             // se non c'è immagine, ignoriamo silenziosamente
         });
 
-        Thread t = new Thread(task);
-        t.setDaemon(true);
-        t.start();
+        ViewScope.of(this).run(task);
     }
 
     private void doSubmit() {
@@ -254,17 +312,32 @@ public class ModifyIssueView extends BorderPane {
         String type = typeBox.getValue().apiValue();
         String priority = priorityBox.getValue().apiValueOrNull();
 
+        File image = selectedImage;
+        CompletableFuture<File> upload = image == null ? null : fileToUpload(image);
+
         Task<Void> task = new Task<>() {
             @Override
             protected Void call() throws Exception {
                 IssueApi.modifyIssue(item.id(), title, desc, type, priority, item.state());
-                if (selectedImage != null) {
-                    IssueApi.uploadIssueImage(item.id(), selectedImage);
+                if (upload != null) {
+                    // Task.updateProgress è thread-safe e accorpa gli aggiornamenti verso il thread FX
+                    IssueApi.uploadIssueImage(item.id(), upload.get(), this::updateProgress);
+                    ImageCache.shared().invalidate(item.id());
                 }
                 return null;
             }
         };
 
+        if (selectedImage != null) {
+            uploadBar.progressProperty().bind(task.progressProperty());
+            task.progressProperty().addListener((obs, was, is) -> {
+                if (is.doubleValue() > 0) {
+                    uploadBar.setVisible(true);
+                    uploadBar.setManaged(true);
+                }
+            });
+        }
+
         task.setOnSucceeded(e -> {
             setLoading(false);
             Alert a = new Alert(Alert.AlertType.INFORMATION);
@@ -287,9 +360,7 @@ public class ModifyIssueView extends BorderPane {
             }
         });
 
-        Thread t = new Thread(task);
-        t.setDaemon(true);
-        t.start();
+        ViewScope.of(this).run(task);
     }
 
     private void setLoading(boolean loading) {
@@ -298,9 +369,16 @@ public class ModifyIssueView extends BorderPane {
         typeBox.setDisable(loading);
         priorityBox.setDisable(loading);
         pickImgBtn.setDisable(loading);
+        optimizeBox.setDisable(loading);
         submitBtn.setDisable(loading || submitBtn.isDisable());
         cancelBtn.setDisable(loading);
         spinner.setVisible(loading);
+        if (!loading) {
+            uploadBar.progressProperty().unbind();
+            uploadBar.setProgress(0);
+            uploadBar.setVisible(false);
+            uploadBar.setManaged(false);
+        }
 
         if (!loading) validate();
     }
@@ -0,0 +1,144 @@
+package application;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.util.Duration;
+
+/**
+ * Scarica in anticipo l'allegato delle issue che l'utente sta probabilmente per aprire,
+ * alla dimensione di {@link IssueDetailView}, così l'apertura trova la cache già pronta.
+ * Due fonti: il puntatore fermo su una card per HOVER_DWELL_MILLIS (priorità alta) e,
+ * quando lo scroll è fermo da IDLE_MILLIS, le issue visibili e le IDLE_AHEAD successive.
+ * Mentre l'utente scorre le richieste in coda vengono scartate e quelle da idle interrotte.
+ * Si ferma del tutto oltre MAX_BYTES scaricati; al massimo MAX_CONCURRENT download insieme.
+ * Da usare dal thread FX.
+ */
+final class Prefetcher {
+
+    /** Issue con il path dell'allegato già risolto. */
+    record Target(IssueItem item, String resolvedPath) {}
+
+    private static final long HOVER_DWELL_MILLIS = 250;
+    private static final long IDLE_MILLIS = 800;
+    /** Issue oltre l'ultima visibile da scaldare quando lo scroll è fermo. */
+    private static final int IDLE_AHEAD = 5;
+    private static final int MAX_CONCURRENT = 2;
+    /** Byte scaricati in anticipo al massimo, per vista. */
+    private static final long MAX_BYTES = 24L * 1024 * 1024;
+
+    private final Node owner;
+    private final IntFunction<List<Target>> upcoming;
+
+    private final PauseTransition dwell = new PauseTransition(Duration.millis(HOVER_DWELL_MILLIS));
+    private final PauseTransition idle = new PauseTransition(Duration.millis(IDLE_MILLIS));
+
+    private final Deque<Target> queue = new ArrayDeque<>();
+    /** Download in corso, per issue; il valore dice se viene dall'idle (interrompibile dallo scroll). */
+    private final Map<IssueItem, Running> running = new HashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+
+    private Target hovered;
+    private long started;
+    private long completed;
+
+    private record Running(CompletableFuture<?> future, boolean fromIdle) {}
+
+    /**
+     * owner: la vista a cui legare i download (cancellati quando AppNavigator la lascia);
+     * upcoming: le issue visibili più le n successive, nell'ordine in cui compaiono.
+     */
+    Prefetcher(Node owner, IntFunction<List<Target>> upcoming) {
+        this.owner = owner;
+        this.upcoming = upcoming;
+        dwell.setOnFinished(e -> {
+            if (hovered != null) enqueue(hovered, true);
+        });
+        idle.setOnFinished(e -> {
+            for (Target t : upcoming.apply(IDLE_AHEAD)) {
+                enqueue(t, false);
+            }
+        });
+    }
+
+    /** Il puntatore è entrato su una card. */
+    void hover(Target t) {
+        hovered = t;
+        dwell.playFromStart();
+    }
+
+    /** Il puntatore ha lasciato la card (un download già partito prosegue). */
+    void hoverEnd(IssueItem item) {
+        if (hovered != null && hovered.item() == item) {
+            hovered = null;
+            dwell.stop();
+        }
+    }
+
+    /** L'utente sta scorrendo: niente lavoro speculativo finché non si ferma. */
+    void scrolled() {
+        queue.clear();
+        running.values().removeIf(r -> {
+            if (!r.fromIdle()) return false;
+            r.future().cancel(true);
+            return true;
+        });
+        idle.playFromStart();
+    }
+
+    /** La lista è cambiata (caricamento, filtri): scalda le nuove issue visibili quando la vista è ferma. */
+    void settle() {
+        idle.playFromStart();
+    }
+
+    private void enqueue(Target t, boolean urgent) {
+        if (t == null || t.resolvedPath() == null || t.resolvedPath().isBlank()) return;
+        if (t.resolvedPath().toLowerCase().startsWith("file:")) return;
+        if (running.containsKey(t.item())) return;
+        if (ImageCache.shared().contains(t.item(), t.resolvedPath(), IssueDetailView.IMAGE_WIDTH, IssueDetailView.IMAGE_HEIGHT)) {
+            return;
+        }
+        queue.removeIf(q -> q.item() == t.item());
+        if (urgent) {
+            queue.addFirst(t);
+        } else {
+            queue.addLast(t);
+        }
+        drain();
+    }
+
+    private void drain() {
+        while (running.size() < MAX_CONCURRENT && !queue.isEmpty()) {
+            if (bytes.get() >= MAX_BYTES) {
+                queue.clear();
+                return;
+            }
+            Target t = queue.pollFirst();
+            boolean fromIdle = t != hovered;
+            CompletableFuture<?> f = ViewScope.of(owner).supply(() -> ImageCache.shared().load(
+                    t.item(), t.resolvedPath(), IssueDetailView.IMAGE_WIDTH, IssueDetailView.IMAGE_HEIGHT,
+                    bytes::addAndGet));
+            Running r = new Running(f, fromIdle);
+            running.put(t.item(), r);
+            started++;
+            f.whenComplete((img, ex) -> Platform.runLater(() -> {
+                if (running.get(t.item()) == r) running.remove(t.item());
+                if (ex == null) completed++;
+                if (UiPerf.ENABLED) {
+                    System.out.println("Prefetcher: " + completed + "/" + started + " completati, "
+                            + (bytes.get() / 1024) + " KB scaricati");
+                }
+                drain();
+            }));
+        }
+    }
+}
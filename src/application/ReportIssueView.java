@@ -1,6 +1,6 @@
 package application;
 
-import javafx.concurrent.Task;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
@@ -12,6 +12,9 @@ import javafx.stage.FileChooser;
 
 import java.io.File;
 import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ReportIssueView extends BorderPane {
 
@@ -24,12 +27,20 @@ public class ReportIssueView extends BorderPane {
     private final Button pickImgBtn = new Button("Allega immagine");
     private final Label fileLabel = new Label("Nessun file selezionato");
     private final ImageView preview = new ImageView();
+    /** L'anteprima viene decodificata direttamente a questa dimensione. */
+    private static final int PREVIEW_WIDTH = 220;
+    private static final int PREVIEW_HEIGHT = 140;
 
     private File selectedImage = null;
+    /** Riduzione/ricodifica dell'immagine prima dell'upload (in background appena scelta). */
+    private final CheckBox optimizeBox = new CheckBox("Ottimizza prima dell'invio");
+    private final Label optimizeInfo = new Label();
+    private CompletableFuture<ImagePreprocessor.Result> prepared;
 
     private final Button submitBtn = new Button("Invia segnalazione");
     private final Button cancelBtn = new Button("Indietro");
     private final ProgressIndicator spinner = new ProgressIndicator();
+    private final ProgressBar uploadBar = new ProgressBar(0);
 
     private final Label errorLabel = new Label();
 
@@ -43,6 +54,10 @@ public class ReportIssueView extends BorderPane {
         spinner.setVisible(false);
         spinner.setMaxSize(18, 18);
 
+        uploadBar.setPrefWidth(160);
+        uploadBar.setVisible(false);
+        uploadBar.setManaged(false);
+
         errorLabel.getStyleClass().add("error");
         errorLabel.setManaged(false);
         errorLabel.setVisible(false);
@@ -64,8 +79,8 @@ public class ReportIssueView extends BorderPane {
         typeBox.getStyleClass().add("bb-choice");
         priorityBox.getStyleClass().add("bb-choice");
 
-        preview.setFitWidth(220);
-        preview.setFitHeight(140);
+        preview.setFitWidth(PREVIEW_WIDTH);
+        preview.setFitHeight(PREVIEW_HEIGHT);
         preview.setPreserveRatio(true);
         preview.getStyleClass().add("img-preview");
 
@@ -153,11 +168,18 @@ public class ReportIssueView extends BorderPane {
         pickImgBtn.setPrefWidth(190);
         HBox row = new HBox(12, pickImgBtn, fileLabel);
         row.setAlignment(Pos.CENTER_LEFT);
-        return row;
+
+        optimizeBox.setSelected(true);
+        optimizeBox.setOnAction(e -> prepareImage());
+        optimizeInfo.getStyleClass().add("muted");
+        HBox optimizeRow = new HBox(10, optimizeBox, optimizeInfo);
+        optimizeRow.setAlignment(Pos.CENTER_LEFT);
+
+        return new VBox(8, row, optimizeRow);
     }
 
     private Node actionsRow() {
-        HBox row = new HBox(10, submitBtn, spinner, cancelBtn);
+        HBox row = new HBox(10, submitBtn, spinner, uploadBar, cancelBtn);
         row.setAlignment(Pos.CENTER_LEFT);
         return row;
     }
@@ -182,10 +204,40 @@ public class ReportIssueView extends BorderPane {
         selectedImage = f;
         fileLabel.setText(f.getName());
         try {
-            preview.setImage(new Image(f.toURI().toString()));
+            preview.setImage(new Image(f.toURI().toString(), PREVIEW_WIDTH, PREVIEW_HEIGHT, true, true, true));
         } catch (Exception ex) {
             preview.setImage(null);
         }
+        prepareImage();
+    }
+
+    /** Avvia l'ottimizzazione dell'immagine scelta; l'invio userà il risultato appena pronto. */
+    private void prepareImage() {
+        if (prepared != null) prepared.cancel(true);
+        prepared = null;
+        optimizeInfo.setText("");
+        File f = selectedImage;
+        if (f == null || !optimizeBox.isSelected()) return;
+
+        optimizeInfo.setText("Ottimizzazione in corso…");
+        CompletableFuture<ImagePreprocessor.Result> job = ViewScope.of(this)
+                .supply(() -> ImagePreprocessor.process(f, ImagePreprocessor.Options.DEFAULT));
+        prepared = job;
+        ViewScope.of(this).onFx(job,
+                r -> { if (prepared == job) optimizeInfo.setText(r.summary()); },
+                ex -> { if (prepared == job) optimizeInfo.setText("Ottimizzazione non riuscita: invio una copia senza metadati"); });
+    }
+
+    /**
+     * File da caricare: l'ottimizzato se pronto; se l'ottimizzazione è fallita una copia
+     * senza metadati, e se neanche quella si può fare l'upload fallisce (mai l'originale).
+     */
+    private CompletableFuture<File> fileToUpload(File original) {
+        if (prepared == null) return CompletableFuture.completedFuture(original);
+        return prepared.handle((r, ex) -> r)
+                .thenCompose(r -> r != null
+                        ? CompletableFuture.completedFuture(r.file())
+                        : ViewScope.of(this).supply(() -> ImagePreprocessor.stripOnly(original).file()));
     }
 
     private void doSubmit() {
@@ -197,46 +249,62 @@ public class ReportIssueView extends BorderPane {
 
         String type = typeBox.getValue().apiValue(); // "BUG" ...
         String priority = priorityBox.getValue().apiValueOrNull(); // null se NONE
-        Task<Void> task = new Task<>() {
-            @Override
-            protected Void call() throws Exception {
-                Long issueId = IssueApi.createIssue(title, desc, type, priority);
-                if (selectedImage != null) {
-                    try {
-                        IssueApi.uploadIssueImage(issueId, selectedImage);
-                    } catch (Exception ex) {
-                        throw new RuntimeException("Issue creata ma upload immagine fallito: " + ex.getMessage(), ex);
-                    }
-                }
-                return null;
+        File image = selectedImage;
+
+        // crea -> (eventuale) upload, senza tenere occupato un thread per richiesta
+        CompletableFuture<Long> created = IssueApi.createIssueAsync(title, desc, type, priority);
+        CompletableFuture<?> work = image == null
+                ? created
+                : HttpTransport.chain(created, issueId -> HttpTransport.recover(
+                        HttpTransport.chain(fileToUpload(image),
+                                file -> IssueApi.uploadIssueImageAsync(issueId, file, uploadProgress())),
+                        ex -> CompletableFuture.failedFuture(new RuntimeException(
+                                "Issue creata ma upload immagine fallito: " + ex.getMessage(), ex))
+                ));
+
+        ViewScope.of(this).onFx(work, r -> onSubmitted(), this::onSubmitFailed);
+    }
+
+    /**
+     * Aggiorna la barra dal thread HTTP: al più un runLater in coda alla volta,
+     * con l'ultimo valore disponibile.
+     */
+    private HttpTransport.Progress uploadProgress() {
+        AtomicLong latest = new AtomicLong();
+        AtomicBoolean queued = new AtomicBoolean();
+        return (sent, total) -> {
+            if (total <= 0) return;
+            latest.set(sent * 1000 / total);
+            if (queued.compareAndSet(false, true)) {
+                Platform.runLater(() -> {
+                    queued.set(false);
+                    uploadBar.setVisible(true);
+                    uploadBar.setManaged(true);
+                    uploadBar.setProgress(latest.get() / 1000.0);
+                });
             }
         };
+    }
 
-        task.setOnSucceeded(e -> {
-            setLoading(false);
-            Alert a = new Alert(Alert.AlertType.INFORMATION);
-            a.setHeaderText("Issue creata");
-            a.setContentText("Segnalazione inviata con successo.");
-            a.showAndWait();
-            AppNavigator.goDashboard();
-        });
-
-        task.setOnFailed(e -> {
-            setLoading(false);
-            Throwable ex = task.getException();
-            if (ex instanceof IssueApi.UnauthorizedException) {
-                showError("Sessione non valida o scaduta. Effettua di nuovo il login.");
-                AppNavigator.goLogin();
-            } else if (ex instanceof IssueApi.ForbiddenException) {
-                showError("Non hai i permessi per creare issue: " + ex.getMessage());
-            } else {
-                showError("Errore: " + ex.getMessage());
-            }
-        });
+    private void onSubmitted() {
+        setLoading(false);
+        Alert a = new Alert(Alert.AlertType.INFORMATION);
+        a.setHeaderText("Issue creata");
+        a.setContentText("Segnalazione inviata con successo.");
+        a.showAndWait();
+        AppNavigator.goDashboard();
+    }
 
-        Thread t = new Thread(task);
-        t.setDaemon(true);
-        t.start();
+    private void onSubmitFailed(Throwable ex) {
+        setLoading(false);
+        if (ex instanceof IssueApi.UnauthorizedException) {
+            showError("Sessione non valida o scaduta. Effettua di nuovo il login.");
+            AppNavigator.goLogin();
+        } else if (ex instanceof IssueApi.ForbiddenException) {
+            showError("Non hai i permessi per creare issue: " + ex.getMessage());
+        } else {
+            showError("Errore: " + ex.getMessage());
+        }
     }
 
     private void setLoading(boolean loading) {
@@ -245,9 +313,15 @@ public class ReportIssueView extends BorderPane {
         typeBox.setDisable(loading);
         priorityBox.setDisable(loading);
         pickImgBtn.setDisable(loading);
+        optimizeBox.setDisable(loading);
         submitBtn.setDisable(loading || submitBtn.isDisable());
         cancelBtn.setDisable(loading);
         spinner.setVisible(loading);
+        if (!loading) {
+            uploadBar.setVisible(false);
+            uploadBar.setManaged(false);
+            uploadBar.setProgress(0);
+        }
 
         if (!loading) validate();
     }
@@ -0,0 +1,175 @@
+package application;
+
+import java.net.http.HttpRequest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Accorpa le richieste identiche contemporanee: finché una GET con stessa chiave
+ * (metodo + URL + Authorization) è in corso, chi arriva dopo aspetta il suo risultato
+ * invece di aprire un altro scambio. Il risultato è condiviso: chi lo riceve non deve modificarlo.
+ *
+ * Ogni chiamante asincrono riceve una propria future: cancellarla lo stacca dal volo,
+ * e lo scambio vero viene interrotto solo quando l'ultimo interessato ha cancellato.
+ */
+public final class SingleFlight {
+
+    private final Map<String, Flight<?>> flights = new HashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /** Richieste partite davvero. */
+    public long executions() { return executions.sum(); }
+    /** Richieste che si sono agganciate a una identica già in corso. */
+    public long coalesced() { return coalesced.sum(); }
+    public synchronized int inFlight() { return flights.size(); }
+
+    /** Chiave della richiesta: metodo + URL + Authorization (utenti diversi non condividono risposte). */
+    public static String key(HttpRequest req) {
+        return req.method() + " " + req.uri() + " " + req.headers().firstValue("Authorization").orElse("");
+    }
+
+    private static final class Flight<R> {
+        final CompletableFuture<R> shared = new CompletableFuture<>();
+        /** Chiamanti ancora interessati (guardato dal lock di SingleFlight). */
+        int waiters;
+        boolean abandoned;
+        CompletableFuture<R> source;
+    }
+
+    /**
+     * Variante asincrona: call parte solo se non c'è già un volo con la stessa chiave.
+     */
+    public <R> CompletableFuture<R> async(String key, Supplier<CompletableFuture<R>> call) {
+        Flight<R> flight;
+        boolean leader = false;
+        synchronized (this) {
+            @SuppressWarnings("unchecked")
+            Flight<R> existing = (Flight<R>) flights.get(key);
+            if (existing == null) {
+                existing = new Flight<>();
+                flights.put(key, existing);
+                leader = true;
+            }
+            existing.waiters++;
+            flight = existing;
+        }
+
+        if (leader) {
+            executions.increment();
+            start(key, flight, call);
+        } else {
+            coalesced.increment();
+        }
+
+        CompletableFuture<R> mine = new CompletableFuture<>();
+        flight.shared.whenComplete((r, ex) -> {
+            if (ex != null) {
+                mine.completeExceptionally(ex);
+            } else {
+                mine.complete(r);
+            }
+        });
+        mine.whenComplete((r, ex) -> {
+            if (mine.isCancelled()) leave(key, flight);
+        });
+        return mine;
+    }
+
+    /**
+     * Variante bloccante: il primo chiamante esegue work nel proprio thread, gli altri aspettano.
+     * Se il primo viene interrotto, chi aspettava ripete la chiamata per conto suo.
+     */
+    public <R> R call(String key, Callable<R> work) throws Exception {
+        Flight<R> flight;
+        boolean leader = false;
+        synchronized (this) {
+            @SuppressWarnings("unchecked")
+            Flight<R> existing = (Flight<R>) flights.get(key);
+            if (existing == null) {
+                existing = new Flight<>();
+                flights.put(key, existing);
+                leader = true;
+            }
+            existing.waiters++;
+            flight = existing;
+        }
+
+        if (!leader) {
+            coalesced.increment();
+            try {
+                return flight.shared.get();
+            } catch (ExecutionException ex) {
+                Throwable cause = HttpTransport.unwrap(ex);
+                if (cause instanceof InterruptedException || cause instanceof CancellationException) {
+                    return work.call();
+                }
+                if (cause instanceof Exception e) throw e;
+                throw ex;
+            } catch (CancellationException ex) {
+                return work.call();
+            }
+        }
+
+        executions.increment();
+        try {
+            R result = work.call();
+            finish(key, flight);
+            flight.shared.complete(result);
+            return result;
+        } catch (Throwable ex) {
+            finish(key, flight);
+            flight.shared.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    private <R> void start(String key, Flight<R> flight, Supplier<CompletableFuture<R>> call) {
+        CompletableFuture<R> source;
+        try {
+            source = call.get();
+        } catch (RuntimeException ex) {
+            source = CompletableFuture.failedFuture(ex);
+        }
+        boolean abandoned;
+        synchronized (this) {
+            flight.source = source;
+            abandoned = flight.abandoned;
+        }
+        // tutti hanno cancellato mentre la richiesta veniva costruita
+        if (abandoned) source.cancel(true);
+
+        source.whenComplete((r, ex) -> {
+            finish(key, flight);
+            if (ex != null) {
+                flight.shared.completeExceptionally(HttpTransport.unwrap(ex));
+            } else {
+                flight.shared.complete(r);
+            }
+        });
+    }
+
+    /** Un chiamante asincrono ha cancellato: se era l'ultimo, si interrompe lo scambio. */
+    private void leave(String key, Flight<?> flight) {
+        CompletableFuture<?> toCancel = null;
+        synchronized (this) {
+            if (--flight.waiters > 0 || flight.abandoned) return;
+            flight.abandoned = true;
+            flights.remove(key, flight);
+            toCancel = flight.source;
+        }
+        if (toCancel != null) toCancel.cancel(true);
+        flight.shared.cancel(true);
+    }
+
+    private synchronized void finish(String key, Flight<?> flight) {
+        flights.remove(key, flight);
+    }
+}
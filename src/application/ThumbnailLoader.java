@@ -0,0 +1,120 @@
+package application;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.image.Image;
+import javafx.util.Duration;
+
+/**
+ * Miniature degli allegati per le celle della lista, dalla {@link ImageCache} condivisa.
+ * Una cella chiede la miniatura solo quando mostra la stessa issue da DEBOUNCE_MILLIS:
+ * durante uno scroll veloce le celle cambiano issue prima e non parte nessun download.
+ * La richiesta va cancellata quando la cella passa a un'altra issue o esce dalla vista;
+ * al massimo MAX_CONCURRENT caricamenti alla volta: gli altri aspettano in coda qui, senza
+ * occupare i permessi condivisi di {@link ViewScope} che servono anche a pagine e sync.
+ * Da usare dal thread FX.
+ */
+final class ThumbnailLoader {
+
+    static final int WIDTH = 72;
+    static final int HEIGHT = 54;
+
+    private static final long DEBOUNCE_MILLIS = 120;
+    private static final int MAX_CONCURRENT = 4;
+
+    /** Richiesta di una cella; cancel() è idempotente. */
+    interface Request {
+        void cancel();
+    }
+
+    private static final Request NONE = () -> {};
+
+    private final Node owner;
+    /** Caricamenti pronti (debounce finito) in attesa di uno slot; solo dal thread FX. */
+    private final Deque<PendingLoad> queued = new ArrayDeque<>();
+    private int active;
+
+    /** owner: la vista a cui legare i caricamenti (cancellati quando AppNavigator la lascia). */
+    ThumbnailLoader(Node owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Miniatura dell'issue: se è già in memoria onLoaded viene chiamato subito,
+     * altrimenti dopo il debounce e il caricamento (sul thread FX, solo se la richiesta è ancora valida).
+     */
+    Request request(IssueItem item, String resolvedPath, Consumer<Image> onLoaded) {
+        if (resolvedPath == null || resolvedPath.isBlank()) return NONE;
+
+        if (resolvedPath.toLowerCase().startsWith("file:")) {
+            onLoaded.accept(new Image(resolvedPath, WIDTH, HEIGHT, true, true, true));
+            return NONE;
+        }
+
+        ImageCache cache = ImageCache.shared();
+        Image cached = cache.cached(item, resolvedPath, WIDTH, HEIGHT);
+        if (cached != null) {
+            onLoaded.accept(cached);
+            return NONE;
+        }
+
+        PendingLoad load = new PendingLoad(item, resolvedPath, onLoaded);
+        load.debounce.play();
+        return load;
+    }
+
+    /** Avvia i caricamenti in coda finché ci sono slot liberi. */
+    private void pump() {
+        while (active < MAX_CONCURRENT && !queued.isEmpty()) {
+            queued.poll().start();
+        }
+    }
+
+    private final class PendingLoad implements Request {
+        final PauseTransition debounce = new PauseTransition(Duration.millis(DEBOUNCE_MILLIS));
+        private final IssueItem item;
+        private final String resolvedPath;
+        private final Consumer<Image> onLoaded;
+        private CompletableFuture<Image> running;
+        private boolean cancelled;
+
+        PendingLoad(IssueItem item, String resolvedPath, Consumer<Image> onLoaded) {
+            this.item = item;
+            this.resolvedPath = resolvedPath;
+            this.onLoaded = onLoaded;
+            debounce.setOnFinished(e -> {
+                if (cancelled) return;
+                queued.add(this);
+                pump();
+            });
+        }
+
+        private void start() {
+            active++;
+            running = ViewScope.of(owner).supply(() -> ImageCache.shared().load(item, resolvedPath, WIDTH, HEIGHT));
+            running.whenComplete((img, ex) -> Platform.runLater(() -> {
+                active--;
+                pump();
+                if (!cancelled && ex == null && img != null && !img.isError()) onLoaded.accept(img);
+            }));
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) return;
+            cancelled = true;
+            debounce.stop();
+            if (running != null) {
+                running.cancel(true);
+            } else {
+                queued.remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package application;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.Scene;
+
+/**
+ * Misure di performance della UI, attive solo con -Dbugboard.perf=true (stampate in console
+ * come il resto del debug): durata delle navigazioni, percentili del tempo di frame e
+ * allocazioni del thread FX. Il benchmark headless (test/application/UiBenchmark) le attiva da sé.
+ */
+public final class UiPerf {
+
+    public static final boolean ENABLED = Boolean.getBoolean("bugboard.perf");
+
+    /** Ogni quanto il monitor dei frame stampa i percentili. */
+    private static final long FRAME_REPORT_NANOS = 5_000_000_000L;
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private static final FrameStats FRAMES = new FrameStats(4096);
+    private static AnimationTimer frameTimer;
+
+    private UiPerf() {}
+
+    /** Byte allocati finora dal thread corrente (0 se la misura non è attiva o non supportata). */
+    public static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Registra una navigazione: tempo di costruzione della vista e tempo fino al
+     * primo layout della scena con la nuova root.
+     */
+    public static void navigated(String view, long startNanos, long builtNanos, Scene scene) {
+        Runnable[] self = new Runnable[1];
+        self[0] = () -> {
+            scene.removePostLayoutPulseListener(self[0]);
+            long now = System.nanoTime();
+            System.out.printf("UiPerf: navigazione %s: costruzione %.1f ms, primo layout %.1f ms%n",
+                    view, ms(builtNanos - startNanos), ms(now - startNanos));
+        };
+        scene.addPostLayoutPulseListener(self[0]);
+    }
+
+    /** Avvia (una volta) il monitor dei frame, che stampa periodicamente i percentili. */
+    public static void startFrameMonitor() {
+        if (frameTimer != null) return;
+        frameTimer = new AnimationTimer() {
+            private long last;
+            private long windowStart;
+            private long windowBytes;
+
+            @Override
+            public void handle(long now) {
+                if (last != 0) FRAMES.add(now - last);
+                last = now;
+                if (windowStart == 0) {
+                    windowStart = now;
+                    windowBytes = allocatedBytes();
+                } else if (now - windowStart >= FRAME_REPORT_NANOS) {
+                    long bytes = allocatedBytes() - windowBytes;
+                    System.out.println("UiPerf: frame " + FRAMES.report(bytes, now - windowStart));
+                    FRAMES.reset();
+                    windowStart = now;
+                    windowBytes = allocatedBytes();
+                }
+            }
+        };
+        frameTimer.start();
+    }
+
+    static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (!ENABLED) return null;
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean t
+                && t.isThreadAllocatedMemorySupported()) {
+            t.setThreadAllocatedMemoryEnabled(true);
+            return t;
+        }
+        return null;
+    }
+
+    /** Campioni di durata dei frame (ns), con percentili. */
+    static final class FrameStats {
+        private final long[] samples;
+        private int size;
+
+        FrameStats(int capacity) {
+            samples = new long[capacity];
+        }
+
+        void add(long nanos) {
+            if (size < samples.length) samples[size++] = nanos;
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        /** Percentili dei frame e velocità di allocazione del thread FX nella finestra. */
+        String report(long allocatedBytes, long windowNanos) {
+            if (size == 0) return "nessun frame";
+            long[] s = Arrays.copyOf(samples, size);
+            Arrays.sort(s);
+            double mbPerSec = windowNanos <= 0 ? 0
+                    : allocatedBytes / (1024.0 * 1024.0) / (windowNanos / 1_000_000_000.0);
+            return String.format("n=%d p50=%.1f ms p95=%.1f ms p99=%.1f ms max=%.1f ms, alloc FX %.1f MB/s",
+                    size, ms(pct(s, 50)), ms(pct(s, 95)), ms(pct(s, 99)), ms(s[size - 1]), mbPerSec);
+        }
+
+        /** p50, p95, p99 e max in ms; array vuoto se non ci sono frame. */
+        double[] percentilesMillis() {
+            if (size == 0) return new double[0];
+            long[] s = Arrays.copyOf(samples, size);
+            Arrays.sort(s);
+            return new double[] { ms(pct(s, 50)), ms(pct(s, 95)), ms(pct(s, 99)), ms(s[size - 1]) };
+        }
+
+        int size() {
+            return size;
+        }
+
+        private static long pct(long[] sorted, int p) {
+            int i = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package application;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
+import javafx.scene.Node;
+
+/**
+ * Scheduler condiviso per il lavoro in background delle viste (virtual thread),
+ * con uno scope per vista. Quando AppNavigator cambia schermata cancella lo scope
+ * della vista uscente: niente thread orfani né callback su viste non più visibili.
+ */
+public final class ViewScope {
+
+    private static final String KEY = "bb-view-scope";
+
+    /** Massimo di task contemporanei, su tutte le viste. */
+    private static final int MAX_CONCURRENT = 16;
+
+    private static final ExecutorService EXECUTOR = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("bugboard-view-", 0).factory()
+    );
+    private static final Semaphore PERMITS = new Semaphore(MAX_CONCURRENT);
+
+    private final Set<Future<?>> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    private ViewScope() {}
+
+    /** Scope della vista (creato al primo uso, salvato nelle properties del nodo). */
+    public static ViewScope of(Node view) {
+        return (ViewScope) view.getProperties().computeIfAbsent(KEY, k -> new ViewScope());
+    }
+
+    /** Cancella tutto il lavoro ancora in corso per la vista, se ne ha. */
+    public static void cancel(Node view) {
+        if (view == null) return;
+        if (view.getProperties().get(KEY) instanceof ViewScope scope) {
+            scope.cancelAll();
+        }
+    }
+
+    /**
+     * Esegue il task sullo scheduler condiviso.
+     * Se lo scope viene cancellato il task viene interrotto e le sue callback non partono.
+     */
+    public <T> Task<T> run(Task<T> task) {
+        if (cancelled) {
+            task.cancel(true);
+            return task;
+        }
+        // un task appena concluso può avere onSucceeded già in coda sul thread FX
+        task.addEventFilter(WorkerStateEvent.ANY, e -> {
+            if (cancelled) e.consume();
+        });
+        pending.add(task);
+        EXECUTOR.execute(() -> {
+            try {
+                PERMITS.acquire();
+            } catch (InterruptedException ex) {
+                task.cancel(true);
+                pending.remove(task);
+                return;
+            }
+            try {
+                if (!cancelled) task.run();
+            } finally {
+                PERMITS.release();
+                pending.remove(task);
+            }
+        });
+        return task;
+    }
+
+    /** Esegue work sullo scheduler condiviso come future legata allo scope (cancellarla interrompe il lavoro). */
+    public <T> CompletableFuture<T> supply(Callable<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (cancelled) {
+            future.cancel(true);
+            return future;
+        }
+        Future<?> running = EXECUTOR.submit(() -> {
+            try {
+                PERMITS.acquire();
+            } catch (InterruptedException ex) {
+                future.cancel(true);
+                return;
+            }
+            try {
+                future.complete(work.call());
+            } catch (Throwable ex) {
+                future.completeExceptionally(ex);
+            } finally {
+                PERMITS.release();
+            }
+        });
+        future.whenComplete((v, ex) -> {
+            if (future.isCancelled()) running.cancel(true);
+        });
+        return track(future);
+    }
+
+    /** Lega una future allo scope: verrà cancellata (e la richiesta HTTP interrotta) con la vista. */
+    public <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+        if (cancelled) {
+            future.cancel(true);
+            return future;
+        }
+        pending.add(future);
+        future.whenComplete((v, ex) -> pending.remove(future));
+        return future;
+    }
+
+    /**
+     * Come {@link #track}, poi consegna esito o errore sul thread FX,
+     * solo se la vista è ancora attiva.
+     */
+    public <T> void onFx(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        track(future).whenComplete((v, ex) -> Platform.runLater(() -> {
+            if (cancelled) return;
+            if (ex == null) {
+                onSuccess.accept(v);
+            } else {
+                onError.accept(HttpTransport.unwrap(ex));
+            }
+        }));
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void cancelAll() {
+        cancelled = true;
+        for (Future<?> f : pending) {
+            f.cancel(true);
+        }
+        pending.clear();
+    }
+}
@@ -0,0 +1,79 @@
+package application;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Latenza delle ricerche della lista issue al crescere dei dati: per ogni dimensione
+ * (default 1000, 10000, 100000, oppure quelle passate come argomenti) costruisce una
+ * {@link IssueBoard} con issue sintetiche e misura p50/p95/max di ogni query, dopo un riscaldamento.
+ * Passa da IssueBoard.search come la UI (indice + filtri). Con Maven: mvn -Psearch-benchmark test
+ */
+public final class SearchBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {1_000, 10_000, 100_000};
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 500;
+
+    /** Parola comune, prefisso, due parole, riferimento quasi unico, prefisso selettivo, tre parole. */
+    private static final List<String> QUERIES = List.of(
+            "login", "sal", "crash upload", "rif123", "rif12", "timeout lento sessione");
+
+    private SearchBenchmark() {}
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? DEFAULT_SIZES
+                : Arrays.stream(args).flatMap(a -> Arrays.stream(a.split(",")))
+                        .filter(s -> !s.isBlank()).mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+        for (int size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(int size) {
+        List<IssueItem> items = SyntheticIssues.generate(size);
+        IssueBoard board = new IssueBoard();
+        long t0 = System.nanoTime();
+        IssueBoard.Prepared prepared = IssueBoard.prepare(items);
+        long t1 = System.nanoTime();
+        board.install(prepared);
+        System.out.printf("SearchBenchmark: %d issue, indice costruito in %.1f ms (in background), installato in %.2f ms%n",
+                size, UiPerf.ms(t1 - t0), UiPerf.ms(System.nanoTime() - t1));
+
+        long sink = 0;
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            for (String q : QUERIES) sink += board.search(q).size();
+        }
+
+        long[][] samples = new long[QUERIES.size()][MEASURED_ROUNDS];
+        long[] all = new long[QUERIES.size() * MEASURED_ROUNDS];
+        int[] hits = new int[QUERIES.size()];
+        for (int r = 0; r < MEASURED_ROUNDS; r++) {
+            for (int q = 0; q < QUERIES.size(); q++) {
+                long s = System.nanoTime();
+                hits[q] = board.search(QUERIES.get(q)).size();
+                long d = System.nanoTime() - s;
+                samples[q][r] = d;
+                all[r * QUERIES.size() + q] = d;
+            }
+        }
+        for (int q = 0; q < QUERIES.size(); q++) {
+            System.out.printf("SearchBenchmark: %d issue, %-24s %6d risultati  %s%n",
+                    size, "\"" + QUERIES.get(q) + "\"", hits[q], percentiles(samples[q]));
+        }
+        System.out.printf("SearchBenchmark: %d issue, tutte le query: %s%n", size, percentiles(all));
+        if (sink == 42) System.out.println();
+    }
+
+    private static String percentiles(long[] nanos) {
+        long[] s = nanos.clone();
+        Arrays.sort(s);
+        return String.format("p50=%.3f ms p95=%.3f ms max=%.3f ms",
+                UiPerf.ms(pct(s, 50)), UiPerf.ms(pct(s, 95)), UiPerf.ms(s[s.length - 1]));
+    }
+
+    private static long pct(long[] sorted, int p) {
+        int i = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+    }
+}
@@ -0,0 +1,55 @@
+package application;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Issue sintetiche riproducibili (seed fisso) per i benchmark, con testi di lunghezza realistica.
+ * Oltre alle parole comuni ogni descrizione ha un riferimento "rifN" quasi unico,
+ * così le ricerche selettive hanno pochi risultati come su dati veri.
+ */
+final class SyntheticIssues {
+
+    private static final String[] WORDS = {
+            "login", "errore", "pagina", "crash", "utente", "immagine", "upload", "lento",
+            "bottone", "salvataggio", "report", "dashboard", "filtro", "sessione", "timeout"
+    };
+    private static final String[] TYPES = {"BUG", "FEATURE", "QUESTION", "DOCUMENTATION"};
+    private static final String[] STATES = {"TODO", "IN_PROGRESS", "DONE"};
+    private static final String[] PRIORITIES = {"HIGH", "MEDIUM", "LOW", null};
+
+    private SyntheticIssues() {}
+
+    static List<IssueItem> generate(int size) {
+        Random rnd = new Random(26);
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<IssueItem> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            LocalDateTime created = base.plusMinutes(rnd.nextInt(600_000));
+            out.add(new IssueItem(
+                    (long) i + 1,
+                    words(rnd, 4 + rnd.nextInt(5)),
+                    words(rnd, 10 + rnd.nextInt(40)) + " rif" + rnd.nextInt(Math.max(1, size)),
+                    PRIORITIES[rnd.nextInt(PRIORITIES.length)],
+                    STATES[rnd.nextInt(STATES.length)],
+                    TYPES[rnd.nextInt(TYPES.length)],
+                    null,
+                    created,
+                    created.plusMinutes(rnd.nextInt(10_000)),
+                    (long) rnd.nextInt(50)
+            ));
+        }
+        return out;
+    }
+
+    private static String words(Random rnd, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(WORDS[rnd.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
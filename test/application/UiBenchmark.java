@@ -0,0 +1,259 @@
+package application;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.control.ListView;
+import javafx.stage.Stage;
+
+/**
+ * Benchmark della UI senza display (Monocle headless, pipeline software): mvn -Pui-benchmark test
+ * [-Dui.sizes=1000,10000,100000]. Per ogni dimensione apre la vera lista issue contro un backend
+ * finto locale con issue sintetiche, carica tutte le pagine scorrendo, poi la scorre per
+ * SCROLL_FRAMES frame e stampa percentili dei frame e allocazioni del thread FX;
+ * infine passa per tutte le schermate di AppNavigator (i tempi li stampa {@link UiPerf}).
+ * Nessun aggancio nelle viste: il backend si cambia con -Dbugboard.api.url.
+ */
+public final class UiBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {1_000, 10_000, 100_000};
+    /** Frame di scroll misurati per ogni dataset. */
+    private static final int SCROLL_FRAMES = 600;
+    /** Frame di assestamento dopo ogni navigazione, prima di misurare. */
+    private static final int WARMUP_FRAMES = 30;
+    /** Oltre questo tempo si smette di aspettare le pagine e si misura quello che c'è. */
+    private static final long LOAD_TIMEOUT_NANOS = 300_000_000_000L;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private static int[] sizes;
+    private static volatile List<IssueItem> dataset = List.of();
+    private static HttpServer server;
+    private static final List<String> results = new ArrayList<>();
+
+    private UiBenchmark() {}
+
+    public static void main(String[] args) throws IOException {
+        sizes = args.length == 0 ? DEFAULT_SIZES
+                : Arrays.stream(args).flatMap(a -> Arrays.stream(a.split(",")))
+                        .filter(s -> !s.isBlank()).mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+
+        // prima di caricare ApiConfig e UiPerf: backend finto, dati locali in una cartella temporanea, misure attive
+        server = startBackend();
+        System.setProperty("bugboard.api.url", "http://127.0.0.1:" + server.getAddress().getPort());
+        System.setProperty("user.home", Files.createTempDirectory("bugboard-bench-").toString());
+        System.setProperty("bugboard.perf", "true");
+        headless("glass.platform", "Monocle");
+        headless("monocle.platform", "Headless");
+        headless("prism.order", "sw");
+
+        Session.setToken("benchmark");
+        Session.setUserId(1L);
+        Session.setRole("ADMIN");
+        Session.setEmail("benchmark@bugboard.local");
+
+        try {
+            Application.launch(Harness.class, args);
+        } finally {
+            // se JavaFX non parte (es. librerie native mancanti) il server non deve tenere viva la JVM
+            server.stop(0);
+        }
+    }
+
+    private static void headless(String key, String value) {
+        if (System.getProperty(key) == null) System.setProperty(key, value);
+    }
+
+    /** Finestra come quella di Main, poi i passi del benchmark uno dopo l'altro. */
+    public static final class Harness extends Application {
+        @Override
+        public void start(Stage stage) {
+            Scene scene = new Scene(new LoginView(), 1000, 700);
+            AppNavigator.init(scene);
+            scene.getStylesheets().add(Main.class.getResource("application.css").toExternalForm());
+            stage.setScene(scene);
+            stage.show();
+            UiPerf.startFrameMonitor();
+
+            Deque<Runnable> steps = new ArrayDeque<>();
+            for (int size : sizes) {
+                steps.add(() -> scrollRun(scene, size, () -> next(steps)));
+            }
+            IssueItem sample = SyntheticIssues.generate(1).getFirst();
+            List<Runnable> navigations = List.of(
+                    AppNavigator::goDashboard,
+                    AppNavigator::goAccount,
+                    AppNavigator::goDiagnostics,
+                    AppNavigator::goReportIssue,
+                    AppNavigator::goAdminCreateUser,
+                    () -> AppNavigator.goModifyIssue(sample),
+                    AppNavigator::goViewIssues,
+                    AppNavigator::goEditIssue,
+                    AppNavigator::goLogin
+            );
+            for (Runnable nav : navigations) {
+                steps.add(() -> {
+                    nav.run();
+                    afterFrames(WARMUP_FRAMES, () -> next(steps));
+                });
+            }
+            steps.add(() -> {
+                System.out.println("UiBenchmark: riepilogo");
+                results.forEach(r -> System.out.println("UiBenchmark:   " + r));
+                server.stop(0);
+                Platform.exit();
+                System.exit(0);
+            });
+            next(steps);
+        }
+    }
+
+    private static void next(Deque<Runnable> steps) {
+        Runnable r = steps.poll();
+        if (r != null) r.run();
+    }
+
+    /** Apre la lista con size issue, la carica tutta scorrendo fino in fondo, poi misura lo scroll. */
+    @SuppressWarnings("unchecked")
+    private static void scrollRun(Scene scene, int size, Runnable done) {
+        dataset = SyntheticIssues.generate(size);
+        AppNavigator.goIssuesList();
+        ListView<IssueItem> list = (ListView<IssueItem>) scene.getRoot().lookup(".issues-list");
+
+        long start = System.nanoTime();
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                int loaded = list.getItems().size();
+                boolean timeout = now - start > LOAD_TIMEOUT_NANOS;
+                if (loaded < size && !timeout) {
+                    // l'ultima cella visibile fa partire la pagina successiva
+                    if (loaded > 0) list.scrollTo(loaded - 1);
+                    return;
+                }
+                stop();
+                String load = String.format("%d issue caricate in %.0f ms%s", loaded,
+                        UiPerf.ms(System.nanoTime() - start), timeout ? " (timeout)" : "");
+                System.out.println("UiBenchmark: " + load);
+                list.scrollTo(0);
+                afterFrames(WARMUP_FRAMES, () -> measureScroll(list, size, load, done));
+            }
+        }.start();
+    }
+
+    private static void measureScroll(ListView<IssueItem> list, int size, String load, Runnable done) {
+        int step = Math.max(1, list.getItems().size() / SCROLL_FRAMES);
+        new AnimationTimer() {
+            private final UiPerf.FrameStats stats = new UiPerf.FrameStats(SCROLL_FRAMES);
+            private long last;
+            private long start;
+            private long bytes;
+            private int frame;
+
+            @Override
+            public void handle(long now) {
+                if (last == 0) {
+                    start = now;
+                    bytes = UiPerf.allocatedBytes();
+                } else {
+                    stats.add(now - last);
+                }
+                last = now;
+                if (frame == SCROLL_FRAMES) {
+                    stop();
+                    String report = stats.report(UiPerf.allocatedBytes() - bytes, now - start);
+                    System.out.println("UiBenchmark: scroll " + size + " issue: " + report);
+                    results.add(size + " issue: " + load + "; scroll " + report);
+                    done.run();
+                    return;
+                }
+                list.scrollTo(Math.min(list.getItems().size() - 1, frame * step));
+                frame++;
+            }
+        }.start();
+    }
+
+    private static void afterFrames(int frames, Runnable then) {
+        new AnimationTimer() {
+            private int left = frames;
+
+            @Override
+            public void handle(long now) {
+                if (--left > 0) return;
+                stop();
+                then.run();
+            }
+        }.start();
+    }
+
+    // ---- backend finto
+
+    /**
+     * GET /bugboard/issue/view?size=&cursor= con il dataset corrente, a pagine come il backend vero
+     * (il cursore è l'indice della prima issue); tutto il resto risponde 404.
+     */
+    private static HttpServer startBackend() throws IOException {
+        HttpServer s = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        s.createContext("/", ex -> {
+            try (ex) {
+                if (!"/bugboard/issue/view".equals(ex.getRequestURI().getPath())) {
+                    ex.sendResponseHeaders(404, -1);
+                    return;
+                }
+                Map<String, String> q = query(ex);
+                List<IssueItem> all = dataset;
+                int size = Integer.parseInt(q.getOrDefault("size", "200"));
+                int from = Integer.parseInt(q.getOrDefault("cursor", "0"));
+                int to = Math.min(all.size(), from + size);
+                Map<String, Object> page = new LinkedHashMap<>();
+                page.put("items", all.subList(Math.min(from, to), to));
+                page.put("nextCursor", to < all.size() ? String.valueOf(to) : null);
+                send(ex, MAPPER.writeValueAsBytes(page));
+            }
+        });
+        s.start();
+        return s;
+    }
+
+    private static Map<String, String> query(HttpExchange ex) {
+        Map<String, String> out = new LinkedHashMap<>();
+        String raw = ex.getRequestURI().getRawQuery();
+        if (raw == null) return out;
+        for (String kv : raw.split("&")) {
+            int eq = kv.indexOf('=');
+            if (eq > 0) out.put(kv.substring(0, eq), URLDecoder.decode(kv.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return out;
+    }
+
+    private static void send(HttpExchange ex, byte[] body) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(200, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}